@@ -63,6 +63,12 @@ sourceSets.main {
     output.setResourcesDir(sourceSets.main.flatMap { it.java.classesDirectory })
 }
 
+// Headless JMH benchmarks for the copysystem package, see the jmh task below
+val jmh: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output + sourceSets.main.get().compileClasspath
+    runtimeClasspath += sourceSets.main.get().output + sourceSets.main.get().runtimeClasspath
+}
+
 // Dependencies:
 
 repositories {
@@ -94,6 +100,8 @@ dependencies {
     shadowImpl("gg.essential:elementa:${elementaVersion}")
     shadowImpl("gg.essential:universalcraft-1.8.9-forge:$ucVersion")
 
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:1.37")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:1.37")
 }
 
 // Tasks:
@@ -156,4 +164,23 @@ tasks.shadowJar {
     }
 }
 
-tasks.assemble.get().dependsOn(tasks.remapJar)
\ No newline at end of file
+tasks.assemble.get().dependsOn(tasks.remapJar)
+
+// Benchmarks:
+// ./gradlew jmh                                 runs everything, results go to build/reports/jmh/results-<version>.json
+// ./gradlew jmh -Pjmh.include=ExtractBenchmark  runs only the benchmarks matching a regex
+
+tasks.register<JavaExec>("jmh") {
+    group = "benchmark"
+    description = "Runs the copysystem JMH benchmarks with the GC profiler and writes the results as JSON."
+    dependsOn(jmh.classesTaskName)
+    classpath = jmh.runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+
+    val results = layout.buildDirectory.file("reports/jmh/results-$version.json")
+    outputs.file(results)
+    doFirst { results.get().asFile.parentFile.mkdirs() }
+
+    args(project.findProperty("jmh.include")?.toString() ?: ".*Benchmark")
+    args("-prof", "gc", "-rf", "json", "-rff", results.get().asFile.absolutePath)
+}
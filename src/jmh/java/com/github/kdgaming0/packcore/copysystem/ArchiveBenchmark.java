@@ -0,0 +1,67 @@
+package com.github.kdgaming0.packcore.copysystem;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link ZipArchiver#createArchive} on a synthetic instance, sequentially and on several threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+@State(Scope.Benchmark)
+public class ArchiveBenchmark {
+    @Param({"SMALL_FILES", "LARGE_BINARIES", "DEEP_TREE"})
+    public String shape;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    private Path workFolder;
+    private FileSnapshot snapshot;
+    private Path output;
+
+    @Setup(Level.Trial)
+    public void createInstance() throws IOException {
+        workFolder = Files.createTempDirectory("packcore-jmh-");
+        SyntheticInstance instance = SyntheticInstance.create(workFolder.resolve("instance"),
+                SyntheticInstance.Shape.valueOf(shape));
+        snapshot = instance.capture();
+        output = workFolder.resolve("archive.zip");
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteInstance() throws IOException {
+        SyntheticInstance.deleteTree(workFolder);
+    }
+
+    @Benchmark
+    public ArchiveResult archive(EntryCounters counters) {
+        ArchiveResult result = ZipArchiver.createArchive(output, snapshot, percent -> { },
+                ArchiveOptions.defaults().withThreads(threads));
+        if (!result.isSuccess()) {
+            throw new IllegalStateException("Archiving failed: " + result.describe());
+        }
+        counters.entries += result.getEntryCount();
+        counters.bytes += result.getBytesIn();
+        return result;
+    }
+}
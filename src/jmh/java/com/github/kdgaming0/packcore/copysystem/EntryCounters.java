@@ -0,0 +1,23 @@
+package com.github.kdgaming0.packcore.copysystem;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Secondary results reported next to each benchmark: entries and uncompressed bytes processed per second.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class EntryCounters {
+    public long entries;
+    public long bytes;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        entries = 0;
+        bytes = 0;
+    }
+}
@@ -0,0 +1,112 @@
+package com.github.kdgaming0.packcore.copysystem;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures applying an archive to a game folder, both through {@link ConfigExtractor} with each extraction
+ * mode and through {@link ConfigExtractionService} as the game does it (staged, with the mode picked for
+ * this machine). Every invocation overwrites the files of the previous one, like re-applying a config.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+@State(Scope.Benchmark)
+public class ExtractBenchmark {
+    private static final String ARCHIVE_NAME = "benchmark.zip";
+
+    @Param({"SMALL_FILES", "LARGE_BINARIES", "DEEP_TREE"})
+    public String shape;
+
+    /**
+     * sequential, parallel and pipelined extract with {@link ConfigExtractor}; unchanged re-applies over
+     * identical files with skip-unchanged on; service goes through {@link ConfigExtractionService}.
+     */
+    @Param({"sequential", "parallel", "pipelined", "unchanged", "service"})
+    public String mode;
+
+    private Path workFolder;
+    private File gameFolder;
+    private File archive;
+    private long archiveBytes;
+    private ConfigExtractor extractor;
+    private ConfigExtractionService service;
+
+    @Setup(Level.Trial)
+    public void createArchive() throws IOException {
+        workFolder = Files.createTempDirectory("packcore-jmh-");
+        SyntheticInstance instance = SyntheticInstance.create(workFolder.resolve("instance"),
+                SyntheticInstance.Shape.valueOf(shape));
+        FileSnapshot snapshot = instance.capture();
+        archiveBytes = snapshot.getTotalBytes();
+
+        gameFolder = workFolder.resolve("game").toFile();
+        Path officialConfigs = gameFolder.toPath().resolve("Skyblock Enhanced")
+                .resolve(ConfigType.OFFICIAL.getFolderName());
+        Files.createDirectories(officialConfigs);
+        archive = officialConfigs.resolve(ARCHIVE_NAME).toFile();
+        ArchiveResult result = ZipArchiver.createArchive(archive.toPath(), snapshot, percent -> { },
+                ArchiveOptions.defaults());
+        if (!result.isSuccess()) {
+            throw new IllegalStateException("Could not create the benchmark archive: " + result.describe());
+        }
+
+        extractor = new ConfigExtractor();
+        service = new ConfigExtractionService(gameFolder);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFolders() throws IOException {
+        SyntheticInstance.deleteTree(workFolder);
+    }
+
+    @Benchmark
+    public ExtractionResult extract(EntryCounters counters) throws IOException {
+        ExtractionResult result;
+        if ("service".equals(mode)) {
+            result = service.extractConfig(ARCHIVE_NAME, ConfigType.OFFICIAL, progress -> { }, false);
+        } else {
+            result = extractor.extractZipToDirectory(archive, gameFolder, progress -> { }, createOptions());
+        }
+        if (!result.isSuccess()) {
+            throw new IllegalStateException("Extraction failed: " + result.describe());
+        }
+        counters.entries += result.getWrittenEntries() + result.getSkippedEntries();
+        counters.bytes += archiveBytes;
+        return result;
+    }
+
+    private ExtractionOptions createOptions() {
+        switch (mode) {
+            case "sequential":
+                return ExtractionOptions.sequential();
+            case "parallel":
+                return ExtractionOptions.defaults().withThreads(4);
+            case "pipelined":
+                return ExtractionOptions.defaults().withThreads(2).withPipeline(true);
+            case "unchanged":
+                return ExtractionOptions.defaults().withSkipUnchanged(true);
+            default:
+                throw new IllegalArgumentException("Unknown mode " + mode);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.github.kdgaming0.packcore.copysystem;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates a fake Minecraft instance for the benchmarks. The content is derived from a fixed seed, so every
+ * run and every version measures the same files.
+ */
+final class SyntheticInstance {
+    private static final long SEED = 0x5EB1EL;
+
+    /**
+     * The instance layouts the benchmarks run against.
+     */
+    enum Shape {
+        /** Thousands of small .cfg and .json files in a few mod folders, like a typical config pack. */
+        SMALL_FILES,
+        /** A handful of large binaries: half already compressed, half compressible. */
+        LARGE_BINARIES,
+        /** Small files spread over a deep directory tree. */
+        DEEP_TREE
+    }
+
+    private final Path root;
+    private final List<Path> selectedPaths;
+
+    private SyntheticInstance(Path root, List<Path> selectedPaths) {
+        this.root = root;
+        this.selectedPaths = selectedPaths;
+    }
+
+    static SyntheticInstance create(Path root, Shape shape) throws IOException {
+        Random random = new Random(SEED);
+        List<Path> selected = new ArrayList<>();
+        switch (shape) {
+            case SMALL_FILES:
+                selected.add(writeSmallFiles(root.resolve("config"), 40, 75, random));
+                selected.add(root.resolve("options.txt"));
+                writeText(root.resolve("options.txt"), 4096, random);
+                break;
+            case LARGE_BINARIES:
+                selected.add(writeLargeBinaries(root.resolve("resourcepacks"), 6, 16 * 1024 * 1024, random));
+                break;
+            case DEEP_TREE:
+                selected.add(writeDeepTree(root.resolve("config"), 12, 3, random));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown shape " + shape);
+        }
+        return new SyntheticInstance(root, selected);
+    }
+
+    Path getRoot() {
+        return root;
+    }
+
+    List<Path> getSelectedPaths() {
+        return selectedPaths;
+    }
+
+    FileSnapshot capture() {
+        return FileSnapshot.capture(root, selectedPaths);
+    }
+
+    private static Path writeSmallFiles(Path folder, int mods, int filesPerMod, Random random) throws IOException {
+        for (int mod = 0; mod < mods; mod++) {
+            Path modFolder = folder.resolve("mod" + mod);
+            Files.createDirectories(modFolder);
+            for (int file = 0; file < filesPerMod; file++) {
+                String extension = file % 3 == 0 ? ".json" : ".cfg";
+                writeText(modFolder.resolve("setting" + file + extension), 200 + random.nextInt(6000), random);
+            }
+        }
+        return folder;
+    }
+
+    private static Path writeLargeBinaries(Path folder, int count, int size, Random random) throws IOException {
+        Files.createDirectories(folder);
+        for (int i = 0; i < count; i++) {
+            byte[] data = new byte[size];
+            if (i % 2 == 0) {
+                // Random bytes behave like textures and sounds that are already compressed
+                random.nextBytes(data);
+            } else {
+                for (int offset = 0; offset < size; offset++) {
+                    data[offset] = (byte) ('a' + random.nextInt(8));
+                }
+            }
+            Files.write(folder.resolve("pack" + i + ".bin"), data);
+        }
+        return folder;
+    }
+
+    private static Path writeDeepTree(Path folder, int depth, int filesPerLevel, Random random) throws IOException {
+        for (int branch = 0; branch < 8; branch++) {
+            Path level = folder.resolve("branch" + branch);
+            for (int d = 0; d < depth; d++) {
+                level = level.resolve("level" + d);
+                Files.createDirectories(level);
+                for (int file = 0; file < filesPerLevel; file++) {
+                    writeText(level.resolve("node" + file + ".cfg"), 100 + random.nextInt(2000), random);
+                }
+            }
+        }
+        return folder;
+    }
+
+    /**
+     * Writes config-like text: repeated keys with varying values, which deflates about as well as real configs.
+     */
+    private static void writeText(Path file, int length, Random random) throws IOException {
+        StringBuilder text = new StringBuilder(length + 64);
+        while (text.length() < length) {
+            text.append("    S:option").append(random.nextInt(100)).append('=')
+                    .append(Long.toHexString(random.nextLong())).append('\n');
+        }
+        Files.write(file, text.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    static void deleteTree(Path folder) throws IOException {
+        if (!Files.exists(folder)) {
+            return;
+        }
+        Files.walkFileTree(folder, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                if (exc != null) {
+                    throw exc;
+                }
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
@@ -2,8 +2,11 @@ package com.github.kdgaming0.packcore;
 
 import com.github.kdgaming0.packcore.command.PackCoreCommands;
 import com.github.kdgaming0.packcore.config.ModConfig;
+import com.github.kdgaming0.packcore.init.AutoDiscoveryMixinPlugin;
 import com.github.kdgaming0.packcore.screen.SEMainMenu;
+import com.github.kdgaming0.packcore.utils.CheckForUpdates;
 import com.github.kdgaming0.packcore.utils.ModpackInfo;
+import com.github.kdgaming0.packcore.utils.StartupTimings;
 
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.gui.GuiMainMenu;
@@ -29,9 +32,30 @@ public class PackCore {
     @Mod.EventHandler
     public void init(FMLInitializationEvent event) {
         MinecraftForge.EVENT_BUS.register(this);
-        PackCoreCommands.registerCommands();
-        ModpackInfo.loadModpackInfo();
-        ModConfig.loadConfig();
+        try (StartupTimings.Span ignored = StartupTimings.start("init.registerCommands")) {
+            PackCoreCommands.registerCommands();
+        }
+        try (StartupTimings.Span ignored = StartupTimings.start("init.modpackInfo")) {
+            ModpackInfo.loadModpackInfo();
+        }
+        try (StartupTimings.Span ignored = StartupTimings.start("init.modConfig")) {
+            ModConfig.loadConfig();
+        }
+        try (StartupTimings.Span ignored = StartupTimings.start("init.updateCheck")) {
+            // Runs in the background, so the result is usually there by the time the main menu opens
+            CheckForUpdates.prefetch();
+        }
+
+        // Mixin discovery runs before the timing code may be loaded, so the plugin only keeps raw times
+        for (AutoDiscoveryMixinPlugin plugin : AutoDiscoveryMixinPlugin.getMixinPlugins()) {
+            if (plugin.hasDiscoveryTiming()) {
+                StartupTimings.record("mixinDiscovery", plugin.getDiscoveryThread(), plugin.getDiscoveryStartNanos(),
+                        plugin.getDiscoveryEndNanos());
+            }
+        }
+
+        // Last PackCore phase of the launch, the report covers everything up to here
+        StartupTimings.writeReport(Minecraft.getMinecraft().mcDataDir);
     }
 
     @SubscribeEvent
@@ -1,5 +1,13 @@
 package com.github.kdgaming0.packcore.command;
 
+import com.github.kdgaming0.packcore.copysystem.ArchiveManifest;
+import com.github.kdgaming0.packcore.copysystem.ArchiveOptions;
+import com.github.kdgaming0.packcore.copysystem.ArchiveResult;
+import com.github.kdgaming0.packcore.copysystem.FileSnapshot;
+import com.github.kdgaming0.packcore.copysystem.SnapshotStore;
+import com.github.kdgaming0.packcore.copysystem.ZipArchiver;
+import com.github.kdgaming0.packcore.task.Job;
+import com.github.kdgaming0.packcore.task.PackCoreTasks;
 import net.minecraft.client.Minecraft;
 import net.minecraft.command.CommandBase;
 import net.minecraft.command.CommandException;
@@ -9,20 +17,21 @@ import net.minecraft.util.ChatComponentText;
 import net.minecraft.util.EnumChatFormatting;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 
 /**
  * Command to create ZIP archives of selected Minecraft files and folders.
- * Usage: /packcore archive <preset|folder_name> [filename]
+ * Usage: /packcore archive <preset|folder_name> [--incremental|--store] [filename]
  * Presets: vanilla-configs, mod-configs, all-configs
+ * With --incremental, unchanged files are copied from the newest previous archive of the same target.
+ * With --store, a deduplicated snapshot is saved in the snapshot store instead of a ZIP file.
+ * Snapshots can be exported with /packcore archive export <snapshot> [filename], and
+ * /packcore archive gc removes stored files no snapshot uses any more.
+ * Work runs as background jobs; /packcore archive status lists them and /packcore archive cancel <id> stops one.
  */
 public class ArchiveCommand extends CommandBase {
 
@@ -33,7 +42,7 @@ public class ArchiveCommand extends CommandBase {
 
     @Override
     public String getCommandUsage(ICommandSender sender) {
-        return "/packcore archive <target> [filename]";
+        return "/packcore archive <target> [--incremental|--store] [filename]";
     }
 
     @Override
@@ -44,42 +53,141 @@ public class ArchiveCommand extends CommandBase {
     @Override
     public void processCommand(ICommandSender sender, String[] args) throws CommandException {
         if (args.length == 0) {
-            sender.addChatMessage(new ChatComponentText(EnumChatFormatting.RED + "Usage: /packcore archive <target> [filename]"));
+            sender.addChatMessage(new ChatComponentText(EnumChatFormatting.RED + "Usage: " + getCommandUsage(sender)));
             return;
         }
 
         String target = args[0];
-        String customFilename = args.length > 1 ? String.join(" ", Arrays.copyOfRange(args, 1, args.length)) : null;
 
-        sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GOLD + "Starting archive creation for: " + EnumChatFormatting.YELLOW + target));
+        if (target.equalsIgnoreCase("status")) {
+            showStatus(sender);
+            return;
+        }
+        if (target.equalsIgnoreCase("cancel")) {
+            cancelJob(sender, args);
+            return;
+        }
+        if (target.equalsIgnoreCase("gc")) {
+            File storeFolder = new File(getCustomConfigFolder(), ".store");
+            submitJob(sender, "Snapshot store cleanup", storeFolder, job -> collectGarbage(sender));
+            return;
+        }
+        if (target.equalsIgnoreCase("export")) {
+            if (args.length < 2) {
+                sender.addChatMessage(new ChatComponentText(EnumChatFormatting.RED + "Usage: /packcore archive export <snapshot> [filename]"));
+                return;
+            }
+            String snapshotName = args[1];
+            String baseName = SnapshotStore.isSnapshot(snapshotName)
+                    ? snapshotName.substring(0, snapshotName.length() - SnapshotStore.SNAPSHOT_EXTENSION.length())
+                    : snapshotName;
+            String exportFilename = args.length > 2 ? String.join(" ", Arrays.copyOfRange(args, 2, args.length)) : baseName;
+            if (!exportFilename.endsWith(".zip")) {
+                exportFilename += ".zip";
+            }
+            File outputFile = new File(getCustomConfigFolder(), exportFilename);
+            submitJob(sender, "Export " + baseName, outputFile, job -> exportSnapshot(sender, snapshotName, outputFile, job));
+            return;
+        }
 
-        // Run archive creation in a separate thread to avoid blocking
-        Thread archiveThread = new Thread(() -> {
-            try {
-                createArchive(sender, target, customFilename);
-            } catch (Exception e) {
-                sender.addChatMessage(new ChatComponentText(EnumChatFormatting.RED + "Error creating archive: " + e.getMessage()));
-                e.printStackTrace();
+        // Split the remaining arguments into flags and the (optional) filename
+        boolean incremental = false;
+        boolean store = false;
+        List<String> filenameParts = new ArrayList<>();
+        for (String arg : Arrays.copyOfRange(args, 1, args.length)) {
+            if (arg.equalsIgnoreCase("--incremental")) {
+                incremental = true;
+            } else if (arg.equalsIgnoreCase("--store")) {
+                store = true;
+            } else {
+                filenameParts.add(arg);
             }
-        });
-        archiveThread.start();
+        }
+        boolean incrementalArchive = incremental;
+        boolean storeSnapshot = store;
+
+        // Generate filename if not provided
+        String filename = filenameParts.isEmpty() ? generateFilename(target) : String.join(" ", filenameParts);
+        String extension = store ? SnapshotStore.SNAPSHOT_EXTENSION : ".zip";
+        if (!filename.endsWith(extension)) {
+            filename += extension;
+        }
+        File outputFile = new File(getCustomConfigFolder(), filename);
+
+        sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GOLD + "Starting archive creation for: " + EnumChatFormatting.YELLOW + target));
+
+        submitJob(sender, "Archive " + target, outputFile, job -> createArchive(sender, target, outputFile, incrementalArchive, storeSnapshot, job));
     }
 
-    private void createArchive(ICommandSender sender, String target, String customFilename) {
-        File minecraftRoot = Minecraft.getMinecraft().mcDataDir;
-        File skyblockFolder = new File(minecraftRoot, "Skyblock Enhanced");
+    // Queue archive work on the shared IO pool, one job per output file
+    private void submitJob(ICommandSender sender, String name, File destination, Job.Body body) {
+        try {
+            Job job = PackCoreTasks.submitJob(name, destination.toPath(), queuedJob -> {
+                try {
+                    body.run(queuedJob);
+                } catch (Exception e) {
+                    sender.addChatMessage(new ChatComponentText(EnumChatFormatting.RED + "Error creating archive: " + e.getMessage()));
+                    throw e;
+                }
+            });
+            sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "Started job #" + job.getId() + ", use /packcore archive status to follow it."));
+        } catch (IllegalStateException e) {
+            sender.addChatMessage(new ChatComponentText(EnumChatFormatting.RED + e.getMessage()));
+        }
+    }
+
+    private void showStatus(ICommandSender sender) {
+        List<Job> jobs = PackCoreTasks.getJobs();
+        if (jobs.isEmpty()) {
+            sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "No archive jobs."));
+            return;
+        }
+
+        sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GOLD + "=== Archive Jobs ==="));
+        for (Job job : jobs) {
+            String progress = job.getState() == Job.State.RUNNING ? " " + job.getProgress() + "%" : "";
+            sender.addChatMessage(new ChatComponentText(EnumChatFormatting.YELLOW + "#" + job.getId() + " " + EnumChatFormatting.WHITE + job.getName()
+                    + EnumChatFormatting.GRAY + " - " + job.getState().name().toLowerCase() + progress
+                    + " (" + job.getDestination().getFileName() + ")"));
+        }
+    }
+
+    private void cancelJob(ICommandSender sender, String[] args) {
+        if (args.length < 2) {
+            sender.addChatMessage(new ChatComponentText(EnumChatFormatting.RED + "Usage: /packcore archive cancel <job id>"));
+            return;
+        }
+
+        int jobId;
+        try {
+            jobId = Integer.parseInt(args[1].replace("#", ""));
+        } catch (NumberFormatException e) {
+            sender.addChatMessage(new ChatComponentText(EnumChatFormatting.RED + "Not a job id: " + args[1]));
+            return;
+        }
+
+        if (PackCoreTasks.cancel(jobId)) {
+            sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GOLD + "Cancelling job #" + jobId + "..."));
+        } else {
+            sender.addChatMessage(new ChatComponentText(EnumChatFormatting.RED + "No running job #" + jobId));
+        }
+    }
+
+    private File getCustomConfigFolder() {
+        File skyblockFolder = new File(Minecraft.getMinecraft().mcDataDir, "Skyblock Enhanced");
         File customConfigFolder = new File(skyblockFolder, "CustomConfigs");
 
         // Ensure CustomConfigs folder exists
         if (!customConfigFolder.exists()) {
             customConfigFolder.mkdirs();
         }
+        return customConfigFolder;
+    }
 
-        // Generate filename if not provided
-        String filename = customFilename != null ? customFilename : generateFilename(target);
-        if (!filename.endsWith(".zip")) {
-            filename += ".zip";
-        }
+    private void createArchive(ICommandSender sender, String target, File outputFile, boolean incremental, boolean store, Job job) {
+        File minecraftRoot = Minecraft.getMinecraft().mcDataDir;
+        File customConfigFolder = outputFile.getParentFile();
+        String filename = outputFile.getName();
 
         // Get paths based on target (preset or folder name)
         List<Path> pathsToArchive = getPathsForTarget(target, minecraftRoot, sender);
@@ -89,13 +197,24 @@ public class ArchiveCommand extends CommandBase {
             return;
         }
 
+        // Walk the selected paths once, the snapshot feeds both the progress total and the writer
+        FileSnapshot snapshot = FileSnapshot.capture(minecraftRoot.toPath(), pathsToArchive);
+
         // Create the archive
-        sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GOLD + "Creating archive with " + pathsToArchive.size() + " items..."));
+        sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GOLD + "Creating archive with " + snapshot.size() + " files from " + pathsToArchive.size() + " items..."));
 
-        boolean success = createZipArchive(filename, customConfigFolder.getAbsolutePath(), pathsToArchive, minecraftRoot, sender);
+        ArchiveResult result;
+        if (store) {
+            result = new SnapshotStore(customConfigFolder).createSnapshot(filename, snapshot, target.toLowerCase(), createProgressListener(sender, job), job::isCancelled);
+        } else {
+            result = createZipArchive(filename, customConfigFolder, snapshot, target, incremental, sender, job);
+        }
 
-        if (success) {
+        if (job.isCancelled()) {
+            sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GOLD + "Archive creation cancelled: " + EnumChatFormatting.WHITE + filename));
+        } else if (result.isSuccess()) {
             sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GREEN + "Archive created successfully: " + EnumChatFormatting.WHITE + filename));
+            sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GREEN + "Archived " + EnumChatFormatting.WHITE + result.describe()));
             sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GREEN + "Location: " + EnumChatFormatting.WHITE + customConfigFolder.getAbsolutePath()));
         } else {
             sender.addChatMessage(new ChatComponentText(EnumChatFormatting.RED + "Failed to create archive. Check console for errors."));
@@ -157,81 +276,84 @@ public class ArchiveCommand extends CommandBase {
     @Override
     public List<String> addTabCompletionOptions(ICommandSender sender, String[] args, BlockPos pos) {
         if (args.length == 1) {
-            return getListOfStringsMatchingLastWord(args, "vanilla-configs", "mod-configs", "all-configs", "config", "resourcepacks", "shaderpacks", "screenshots");
+            return getListOfStringsMatchingLastWord(args, "vanilla-configs", "mod-configs", "all-configs", "config", "resourcepacks", "shaderpacks", "screenshots", "export", "gc", "status", "cancel");
+        }
+        if (args.length == 2 && args[0].equalsIgnoreCase("cancel")) {
+            List<String> jobIds = new ArrayList<>();
+            for (Job job : PackCoreTasks.getJobs()) {
+                if (!job.isFinished()) {
+                    jobIds.add(String.valueOf(job.getId()));
+                }
+            }
+            return getListOfStringsMatchingLastWord(args, jobIds.toArray(new String[0]));
+        }
+        if (args.length == 2 && !args[0].equalsIgnoreCase("export")) {
+            return getListOfStringsMatchingLastWord(args, "--incremental", "--store");
         }
         return Arrays.asList();
     }
 
-    // Simple ZIP archiver implementation
-    private boolean createZipArchive(String filename, String outputDir, List<Path> pathsToArchive, File rootDir, ICommandSender sender) {
-        try {
-            File outputFile = new File(outputDir, filename);
-            FileOutputStream fos = new FileOutputStream(outputFile);
-            ZipOutputStream zos = new ZipOutputStream(fos);
-
-            int totalFiles = 0;
-            for (Path path : pathsToArchive) {
-                totalFiles += countFiles(path.toFile());
-            }
+    // The game window size, recorded in the archive manifest so configs can be matched to a screen
+    private static String getResolution() {
+        Minecraft mc = Minecraft.getMinecraft();
+        return mc.displayWidth + "x" + mc.displayHeight;
+    }
 
-            int currentFile = 0;
-            for (Path path : pathsToArchive) {
-                currentFile = addToZip(zos, path.toFile(), rootDir, "", currentFile, totalFiles, sender);
+    // Writes the archive with ZipArchiver; incremental runs reuse unchanged entries from the newest archive of the same target
+    private ArchiveResult createZipArchive(String filename, File outputDir, FileSnapshot snapshot, String target,
+                                           boolean incremental, ICommandSender sender, Job job) {
+        String normalizedTarget = target.toLowerCase();
+        // The target is always recorded, so a later incremental run can find this archive
+        ArchiveOptions options = ArchiveOptions.defaults()
+                .withTarget(normalizedTarget)
+                .withThreads(PackCoreTasks.getCpuThreads())
+                .withExecutor(PackCoreTasks.cpu())
+                .withCancellation(job::isCancelled)
+                .withProperty(ArchiveManifest.PROPERTY_RESOLUTION, getResolution());
+
+        if (incremental) {
+            Path baseArchive = ZipArchiver.findLatestArchive(outputDir.toPath(), normalizedTarget);
+            if (baseArchive != null) {
+                sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GOLD + "Reusing unchanged files from: " + EnumChatFormatting.YELLOW + baseArchive.getFileName()));
+            } else {
+                sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "No previous archive of " + target + " found, creating a full archive."));
             }
-
-            zos.close();
-            fos.close();
-            return true;
-        } catch (IOException e) {
-            e.printStackTrace();
-            return false;
+            options.withBaseArchive(baseArchive);
         }
+
+        return ZipArchiver.createArchive(new File(outputDir, filename).toPath(), snapshot, createProgressListener(sender, job), options);
     }
 
-    private int addToZip(ZipOutputStream zos, File file, File rootDir, String parentPath, int currentFile, int totalFiles, ICommandSender sender) throws IOException {
-        if (file.isDirectory()) {
-            String dirPath = parentPath + file.getName() + "/";
-            File[] files = file.listFiles();
-            if (files != null) {
-                for (File subFile : files) {
-                    currentFile = addToZip(zos, subFile, rootDir, dirPath, currentFile, totalFiles, sender);
-                }
+    // Tracks progress on the job and reports it in chat every 20%
+    private ZipArchiver.ArchiveProgressListener createProgressListener(ICommandSender sender, Job job) {
+        int[] lastReported = {0};
+        return progress -> {
+            job.setProgress(progress);
+            if (progress >= lastReported[0] + 20) {
+                lastReported[0] = progress - progress % 20;
+                sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GOLD + "Archive progress: " + EnumChatFormatting.YELLOW + lastReported[0] + "%"));
             }
-        } else {
-            String filePath = parentPath + file.getName();
-            ZipEntry entry = new ZipEntry(filePath);
-            zos.putNextEntry(entry);
-
-            FileInputStream fis = new FileInputStream(file);
-            byte[] buffer = new byte[1024];
-            int length;
-            while ((length = fis.read(buffer)) > 0) {
-                zos.write(buffer, 0, length);
-            }
-            fis.close();
-            zos.closeEntry();
+        };
+    }
 
-            currentFile++;
-            int progress = (currentFile * 100) / totalFiles;
-            if (progress % 20 == 0) {
-                sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GOLD + "Archive progress: " + EnumChatFormatting.YELLOW + progress + "%"));
+    // Writes a stored snapshot out as a plain ZIP file for sharing
+    private void exportSnapshot(ICommandSender sender, String snapshotName, File outputFile, Job job) {
+        sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GOLD + "Exporting snapshot: " + EnumChatFormatting.YELLOW + snapshotName));
+        try {
+            ArchiveResult result = new SnapshotStore(outputFile.getParentFile()).exportToZip(snapshotName, outputFile.toPath(), createProgressListener(sender, job));
+            if (result.isSuccess()) {
+                sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GREEN + "Snapshot exported: " + EnumChatFormatting.WHITE + outputFile.getName() + EnumChatFormatting.GRAY + " (" + result.describe() + ")"));
+            } else {
+                sender.addChatMessage(new ChatComponentText(EnumChatFormatting.RED + "Failed to export snapshot. Check console for errors."));
             }
+        } catch (IOException e) {
+            sender.addChatMessage(new ChatComponentText(EnumChatFormatting.RED + "Could not read snapshot: " + e.getMessage()));
         }
-        return currentFile;
     }
 
-    private int countFiles(File file) {
-        if (file.isDirectory()) {
-            int count = 0;
-            File[] files = file.listFiles();
-            if (files != null) {
-                for (File subFile : files) {
-                    count += countFiles(subFile);
-                }
-            }
-            return count;
-        } else {
-            return 1;
-        }
+    // Removes stored files that no snapshot references any more
+    private void collectGarbage(ICommandSender sender) {
+        int deleted = new SnapshotStore(getCustomConfigFolder()).collectGarbage();
+        sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GREEN + "Snapshot store cleaned up, removed " + EnumChatFormatting.WHITE + deleted + EnumChatFormatting.GREEN + " unused files."));
     }
-}
\ No newline at end of file
+}
@@ -54,12 +54,20 @@ public class HelpCommand extends CommandBase {
         String[] helpLines = {
                 EnumChatFormatting.GOLD + "=== PackCore Commands ===",
                 EnumChatFormatting.YELLOW + "/packcore " + EnumChatFormatting.GRAY + "- Show this help",
-                EnumChatFormatting.YELLOW + "/packcore archive <target> [filename]",
+                EnumChatFormatting.YELLOW + "/packcore archive <target> [--incremental|--store] [filename]",
                 "  " + EnumChatFormatting.GRAY + "Archive presets:",
                 "  " + EnumChatFormatting.WHITE + "- vanilla-configs " + EnumChatFormatting.GRAY + "(options.txt, servers.dat)",
                 "  " + EnumChatFormatting.WHITE + "- mod-configs " + EnumChatFormatting.GRAY + "(config folder only)",
                 "  " + EnumChatFormatting.WHITE + "- all-configs " + EnumChatFormatting.GRAY + "(vanilla + mod configs)",
                 "  " + EnumChatFormatting.GRAY + "Or specify any folder name",
+                "  " + EnumChatFormatting.GRAY + "--incremental reuses unchanged files from the last archive",
+                "  " + EnumChatFormatting.GRAY + "--store saves a deduplicated snapshot instead of a ZIP",
+                EnumChatFormatting.YELLOW + "/packcore archive export <snapshot> [filename]",
+                "  " + EnumChatFormatting.GRAY + "Export a snapshot as a ZIP file for sharing",
+                EnumChatFormatting.YELLOW + "/packcore archive gc",
+                "  " + EnumChatFormatting.GRAY + "Remove stored files no snapshot uses any more",
+                EnumChatFormatting.YELLOW + "/packcore archive status|cancel <job id>",
+                "  " + EnumChatFormatting.GRAY + "Show or stop running archive jobs",
                 "",
                 EnumChatFormatting.YELLOW + "/packcore dialog [true|false]",
                 "  " + EnumChatFormatting.GRAY + "Enable/disable the config selection dialog",
@@ -3,6 +3,7 @@ package com.github.kdgaming0.packcore.config;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
 import net.minecraft.client.Minecraft;
 import net.minecraftforge.fml.common.Loader;
 import org.apache.logging.log4j.LogManager;
@@ -10,107 +11,250 @@ import org.apache.logging.log4j.Logger;
 
 import java.io.File;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
 
 import static com.github.kdgaming0.packcore.PackCore.MOD_ID;
 
+/**
+ * PackCore's own settings, kept in memory and written to {@code config/PackCore.json}.
+ * <p>
+ * The settings are an immutable {@link PackCoreSettings} snapshot behind a volatile field, so reading one is
+ * a field load on any thread. Setters publish a changed copy and tell the registered {@link Listener}s.
+ * <p>
+ * Changes are written behind: {@link #saveConfig()} only marks the settings dirty, and a background thread
+ * writes them once {@value #SAVE_DELAY_MILLIS} ms later, so toggling a setting several times costs one write
+ * and never blocks the render thread. The file is replaced through a temporary file and an atomic rename,
+ * and pending changes are written on shutdown.
+ */
 public class ModConfig {
     private static final Logger LOGGER = LogManager.getLogger(MOD_ID);
     private static final String CONFIG_FILENAME = "PackCore.json";
     private static final File CONFIG_FILE = new File(new File(Minecraft.getMinecraft().mcDataDir, "config"), CONFIG_FILENAME);
-    private static JsonObject configData;
+    private static final long SAVE_DELAY_MILLIS = 500;
+    private static volatile PackCoreSettings settings;
+    private static final List<Listener> listeners = new CopyOnWriteArrayList<>();
     private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
 
+    private static final ScheduledExecutorService WRITER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "PackCore-ConfigWriter");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final Object WRITE_LOCK = new Object();
+    private static boolean dirty;
+    private static boolean saveScheduled;
+    private static long snapshotGeneration;
+    private static long writtenGeneration;
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(ModConfig::flush, "PackCore-ConfigFlush"));
+    }
+
     public static void loadConfig() {
+        PackCoreSettings previous;
+        PackCoreSettings loaded;
+        synchronized (ModConfig.class) {
+            // Unsaved changes would be lost by reading the file
+            if (dirty) {
+                flush();
+            }
+            previous = settings;
+            loaded = readConfig();
+            settings = loaded;
+        }
+        if (previous != null) {
+            notifyListeners(previous, loaded);
+        }
+    }
+
+    private static PackCoreSettings readConfig() {
         if (!CONFIG_FILE.exists()) {
-            createDefaultConfig();
+            return createDefaultConfig();
         }
 
         try (FileReader reader = new FileReader(CONFIG_FILE)) {
-            configData = gson.fromJson(reader, JsonObject.class);
-            updateConfigWithDefaults();
-        } catch (IOException e) {
+            JsonObject json = gson.fromJson(reader, JsonObject.class);
+            if (json == null) {
+                return createDefaultConfig();
+            }
+            updateConfigWithDefaults(json);
+            return gson.fromJson(json, PackCoreSettings.class);
+        } catch (IOException | JsonParseException e) {
             LOGGER.error("Failed to load config file: " + CONFIG_FILE.getAbsolutePath(), e);
             // Create default config if reading fails
-            createDefaultConfig();
+            return createDefaultConfig();
         }
     }
 
-    private static void updateConfigWithDefaults() {
-        boolean updated = false;
-
-        if (!configData.has("PromptSetDefaultConfig")) {
-            configData.addProperty("PromptSetDefaultConfig", true);
-            updated = true;
-        }
-        if (!configData.has("ShowOptifineGuide")) {
-            configData.addProperty("ShowOptifineGuide", true);
-            updated = true;
+    /**
+     * Settings missing from the file, for example ones added in a newer version, get their default value;
+     * the file is saved so it lists them too.
+     */
+    private static void updateConfigWithDefaults(JsonObject json) {
+        if (!json.has("PromptSetDefaultConfig") || !json.has("ShowOptifineGuide") || !json.has("EnableCustomMenu")) {
+            saveConfig();
         }
-        if (!configData.has("EnableCustomMenu")) {
-            configData.addProperty("EnableCustomMenu", true);
-            updated = true;
+    }
+
+    private static PackCoreSettings createDefaultConfig() {
+        saveConfig(); // Save to file
+        return PackCoreSettings.DEFAULTS;
+    }
+
+    /**
+     * The current settings. The snapshot never changes, so it can be read from any thread; call again to
+     * see later changes.
+     */
+    public static PackCoreSettings getSettings() {
+        PackCoreSettings current = settings;
+        if (current == null) {
+            loadConfig();
+            current = settings;
         }
+        return current;
+    }
 
-        if (updated) {
+    /**
+     * Replaces the settings with a changed copy, schedules a save and notifies the listeners on the calling
+     * thread. Concurrent updates are applied one after another, so none is lost.
+     */
+    public static void update(UnaryOperator<PackCoreSettings> change) {
+        PackCoreSettings previous;
+        PackCoreSettings updated;
+        synchronized (ModConfig.class) {
+            previous = getSettings();
+            updated = change.apply(previous);
+            if (updated.equals(previous)) {
+                return;
+            }
+            settings = updated;
             saveConfig();
         }
+        notifyListeners(previous, updated);
     }
 
-    private static void createDefaultConfig() {
-        JsonObject defaultConfig = new JsonObject();
+    /**
+     * Registers a listener that is told about every change to the settings.
+     */
+    public static void addListener(Listener listener) {
+        listeners.add(listener);
+    }
 
-        // Add your config values here
-        defaultConfig.addProperty("PromptSetDefaultConfig", true);
-        defaultConfig.addProperty("ShowOptifineGuide", true);
-        defaultConfig.addProperty("EnableCustomMenu", true);
+    public static void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
 
-        configData = defaultConfig; // Set the default config as current
-        saveConfig(); // Save to file
+    private static void notifyListeners(PackCoreSettings previous, PackCoreSettings current) {
+        if (previous.equals(current)) {
+            return;
+        }
+        for (Listener listener : listeners) {
+            try {
+                listener.onSettingsChanged(previous, current);
+            } catch (RuntimeException e) {
+                LOGGER.error("Settings listener failed", e);
+            }
+        }
     }
 
     // Getter methods
     public static boolean getPromptSetDefaultConfig() {
-        if (configData == null) loadConfig();
-        return configData.get("PromptSetDefaultConfig").getAsBoolean();
+        return getSettings().isPromptSetDefaultConfig();
     }
 
     public static boolean getShowOptifineGuide() {
-        if (configData == null) loadConfig();
-        return configData.get("ShowOptifineGuide").getAsBoolean();
+        return getSettings().isShowOptifineGuide();
     }
 
     public static boolean getEnableCustomMenu() {
-        if (configData == null) loadConfig();
-        return configData.get("EnableCustomMenu").getAsBoolean();
+        return getSettings().isEnableCustomMenu();
     }
 
     // Setter methods
     public static void setPromptSetDefaultConfig(boolean value) {
-        if (configData == null) loadConfig();
-        configData.addProperty("PromptSetDefaultConfig", value);
-        saveConfig();
+        update(current -> current.withPromptSetDefaultConfig(value));
     }
 
     public static void setShowOptifineGuide(boolean value) {
-        if (configData == null) loadConfig();
-        configData.addProperty("ShowOptifineGuide", value);
-        saveConfig();
+        update(current -> current.withShowOptifineGuide(value));
     }
 
     public static void setEnableCustomMenu(boolean value) {
-        if (configData == null) loadConfig();
-        configData.addProperty("EnableCustomMenu", value);
-        saveConfig();
+        update(current -> current.withEnableCustomMenu(value));
+    }
+
+    /**
+     * Marks the config as changed. It is written on the writer thread after {@value #SAVE_DELAY_MILLIS} ms,
+     * together with any other change made in the meantime.
+     */
+    public static synchronized void saveConfig() {
+        dirty = true;
+        if (!saveScheduled) {
+            saveScheduled = true;
+            WRITER.schedule(ModConfig::flush, SAVE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
     }
 
-    // Save config to file
-    public static void saveConfig() {
-        try (FileWriter writer = new FileWriter(CONFIG_FILE)) {
-            gson.toJson(configData, writer);
-        } catch (IOException e) {
-            LOGGER.error("Failed to save config to: " + CONFIG_FILE.getAbsolutePath(), e);
+    /**
+     * Writes pending changes now, on the calling thread. Called on shutdown; does nothing if nothing changed.
+     */
+    public static void flush() {
+        PackCoreSettings snapshot;
+        long generation;
+        synchronized (ModConfig.class) {
+            saveScheduled = false;
+            if (!dirty || settings == null) {
+                return;
+            }
+            dirty = false;
+            snapshot = settings;
+            generation = ++snapshotGeneration;
         }
+        String json = gson.toJson(snapshot);
+
+        // One write at a time, and a snapshot never replaces a newer one written by another thread
+        synchronized (WRITE_LOCK) {
+            if (generation <= writtenGeneration) {
+                return;
+            }
+            try {
+                writeAtomically(CONFIG_FILE.toPath(), json);
+                writtenGeneration = generation;
+            } catch (IOException e) {
+                LOGGER.error("Failed to save config to: " + CONFIG_FILE.getAbsolutePath(), e);
+            }
+        }
+    }
+
+    private static void writeAtomically(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            writer.write(content);
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Told about changes to the settings, on the thread that made them.
+     */
+    public interface Listener {
+        void onSettingsChanged(PackCoreSettings previous, PackCoreSettings current);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,70 @@
+package com.github.kdgaming0.packcore.config;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * An immutable snapshot of PackCore's settings. Changing a setting creates a new snapshot, so a snapshot
+ * can be read from any thread and serialized without locking.
+ */
+public final class PackCoreSettings {
+    /** The settings of a new installation. */
+    public static final PackCoreSettings DEFAULTS = new PackCoreSettings();
+
+    @SerializedName("PromptSetDefaultConfig")
+    private final boolean promptSetDefaultConfig;
+    @SerializedName("ShowOptifineGuide")
+    private final boolean showOptifineGuide;
+    @SerializedName("EnableCustomMenu")
+    private final boolean enableCustomMenu;
+
+    /**
+     * Default values; also used by Gson, so settings missing from the file keep their default.
+     */
+    private PackCoreSettings() {
+        this(true, true, true);
+    }
+
+    private PackCoreSettings(boolean promptSetDefaultConfig, boolean showOptifineGuide, boolean enableCustomMenu) {
+        this.promptSetDefaultConfig = promptSetDefaultConfig;
+        this.showOptifineGuide = showOptifineGuide;
+        this.enableCustomMenu = enableCustomMenu;
+    }
+
+    public PackCoreSettings withPromptSetDefaultConfig(boolean value) {
+        return new PackCoreSettings(value, showOptifineGuide, enableCustomMenu);
+    }
+
+    public PackCoreSettings withShowOptifineGuide(boolean value) {
+        return new PackCoreSettings(promptSetDefaultConfig, value, enableCustomMenu);
+    }
+
+    public PackCoreSettings withEnableCustomMenu(boolean value) {
+        return new PackCoreSettings(promptSetDefaultConfig, showOptifineGuide, value);
+    }
+
+    public boolean isPromptSetDefaultConfig() { return promptSetDefaultConfig; }
+    public boolean isShowOptifineGuide() { return showOptifineGuide; }
+    public boolean isEnableCustomMenu() { return enableCustomMenu; }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        PackCoreSettings that = (PackCoreSettings) obj;
+        return promptSetDefaultConfig == that.promptSetDefaultConfig
+                && showOptifineGuide == that.showOptifineGuide
+                && enableCustomMenu == that.enableCustomMenu;
+    }
+
+    @Override
+    public int hashCode() {
+        return (promptSetDefaultConfig ? 4 : 0) | (showOptifineGuide ? 2 : 0) | (enableCustomMenu ? 1 : 0);
+    }
+
+    @Override
+    public String toString() {
+        return "PackCoreSettings{promptSetDefaultConfig=" + promptSetDefaultConfig
+                + ", showOptifineGuide=" + showOptifineGuide
+                + ", enableCustomMenu=" + enableCustomMenu + "}";
+    }
+}
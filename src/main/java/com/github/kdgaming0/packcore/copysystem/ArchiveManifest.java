@@ -0,0 +1,159 @@
+package com.github.kdgaming0.packcore.copysystem;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Summary of an archive written by {@link ZipArchiver}, stored inside the archive as a small uncompressed
+ * entry. The archive comment points at the entry's bytes, so {@link #read(Path)} only needs the end of the
+ * file and the manifest itself, a few kilobytes, instead of the central directory or any inflating.
+ * <p>
+ * Per-file sizes and CRCs are not repeated here; the central directory already has them.
+ */
+public class ArchiveManifest {
+    public static final String ENTRY_NAME = ".packcore/manifest.json";
+    public static final String PROPERTY_RESOLUTION = "resolution";
+
+    private static final String COMMENT_PREFIX = "packcore-manifest:";
+    private static final int MANIFEST_VERSION = 1;
+    private static final int MAX_MANIFEST_SIZE = 64 * 1024;
+    private static final Gson gson = new Gson();
+
+    private int version;
+    private long created;
+    private String target;
+    private int entryCount;
+    private int storedEntries;
+    private long totalSize;
+    private Map<String, String> properties;
+
+    ArchiveManifest(long created, String target, int entryCount, int storedEntries, long totalSize,
+                    Map<String, String> properties) {
+        this.version = MANIFEST_VERSION;
+        this.created = created;
+        this.target = target;
+        this.entryCount = entryCount;
+        this.storedEntries = storedEntries;
+        this.totalSize = totalSize;
+        this.properties = new LinkedHashMap<>(properties);
+    }
+
+    /**
+     * Reads the manifest of an archive.
+     *
+     * @return the manifest, or null if the archive has none (for example one not made by PackCore)
+     */
+    public static ArchiveManifest read(Path zipFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(zipFile, StandardOpenOption.READ)) {
+            String pointer = commentLine(ZipCentralDirectory.readComment(channel), COMMENT_PREFIX);
+            if (pointer == null) {
+                return null;
+            }
+
+            String[] parts = pointer.split(":");
+            long offset;
+            int length;
+            long expectedCrc;
+            try {
+                offset = Long.parseLong(parts[0]);
+                length = Integer.parseInt(parts[1]);
+                expectedCrc = Long.parseLong(parts[2], 16);
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                return null;
+            }
+            if (offset < 0 || length <= 0 || length > MAX_MANIFEST_SIZE || offset + length > channel.size()) {
+                return null;
+            }
+
+            ByteBuffer data = ZipCentralDirectory.readFully(channel, offset, length);
+            CRC32 crc = new CRC32();
+            crc.update(data.array(), 0, length);
+            if (crc.getValue() != expectedCrc) {
+                // The pointer does not match the content, the archive was rewritten by another tool
+                return null;
+            }
+
+            ArchiveManifest manifest = gson.fromJson(new String(data.array(), 0, length, StandardCharsets.UTF_8),
+                    ArchiveManifest.class);
+            return manifest != null && manifest.version <= MANIFEST_VERSION ? manifest : null;
+        } catch (JsonParseException e) {
+            throw new IOException("Invalid archive manifest in " + zipFile.getFileName(), e);
+        }
+    }
+
+    byte[] toBytes() {
+        return gson.toJson(this).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Builds the archive comment: the target line used by incremental mode, then the manifest pointer.
+     */
+    static String buildComment(String target, long dataOffset, int length, long crc) {
+        String pointer = COMMENT_PREFIX + dataOffset + ":" + length + ":" + Long.toHexString(crc);
+        return target != null ? ZipArchiver.TARGET_COMMENT_PREFIX + target + "\n" + pointer : pointer;
+    }
+
+    /**
+     * The target named in an archive comment, or null.
+     */
+    static String targetFromComment(String comment) {
+        return commentLine(comment, ZipArchiver.TARGET_COMMENT_PREFIX);
+    }
+
+    private static String commentLine(String comment, String prefix) {
+        if (comment == null) {
+            return null;
+        }
+        for (String line : comment.split("\n")) {
+            if (line.startsWith(prefix)) {
+                return line.substring(prefix.length());
+            }
+        }
+        return null;
+    }
+
+    public long getCreated() { return created; }
+    public String getTarget() { return target; }
+    public int getEntryCount() { return entryCount; }
+    /** Entries written without compression. */
+    public int getStoredEntries() { return storedEntries; }
+    /** Total uncompressed size of all entries. */
+    public long getTotalSize() { return totalSize; }
+    public Map<String, String> getProperties() {
+        return properties != null ? Collections.unmodifiableMap(properties) : Collections.emptyMap();
+    }
+
+    public String getResolution() {
+        return getProperties().get(PROPERTY_RESOLUTION);
+    }
+
+    /**
+     * A one line summary such as "1204 files, 85.2 MB, 1920x1080".
+     */
+    public String describe() {
+        String summary = entryCount + " files, " + formatSize(totalSize);
+        String resolution = getResolution();
+        return resolution != null ? summary + ", " + resolution : summary;
+    }
+
+    private static String formatSize(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        if (bytes < 1024 * 1024) {
+            return String.format("%.1f KB", bytes / 1024.0);
+        }
+        return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+}
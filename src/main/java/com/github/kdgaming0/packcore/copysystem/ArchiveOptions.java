@@ -0,0 +1,120 @@
+package com.github.kdgaming0.packcore.copysystem;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Options that control how {@link ZipArchiver} builds an archive.
+ */
+public class ArchiveOptions {
+    private int threads;
+    private String target;
+    private Path baseArchive;
+    private CompressionPolicy compressionPolicy = CompressionPolicy.defaults();
+    private boolean directBuffers = true;
+    private ExecutorService executor;
+    private BooleanSupplier cancellation = () -> false;
+    private final Map<String, String> properties = new LinkedHashMap<>();
+
+    private ArchiveOptions(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * Default options: compress on one worker per available core.
+     */
+    public static ArchiveOptions defaults() {
+        return new ArchiveOptions(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Options that reproduce the classic single threaded behaviour.
+     */
+    public static ArchiveOptions sequential() {
+        return new ArchiveOptions(1);
+    }
+
+    /**
+     * Sets the number of compression threads. Values below 1 are treated as 1.
+     */
+    public ArchiveOptions withThreads(int threads) {
+        this.threads = Math.max(1, threads);
+        return this;
+    }
+
+    /**
+     * Records which target (preset or folder) the archive was made from, so later incremental
+     * runs can find it again.
+     */
+    public ArchiveOptions withTarget(String target) {
+        this.target = target;
+        return this;
+    }
+
+    /**
+     * Enables incremental mode: entries whose file is unchanged since this archive was written are
+     * copied over as raw compressed bytes instead of being compressed again. Null disables it.
+     */
+    public ArchiveOptions withBaseArchive(Path baseArchive) {
+        this.baseArchive = baseArchive;
+        return this;
+    }
+
+    /**
+     * Sets the policy that decides which entries are stored instead of deflated.
+     */
+    public ArchiveOptions withCompressionPolicy(CompressionPolicy compressionPolicy) {
+        this.compressionPolicy = compressionPolicy != null ? compressionPolicy : CompressionPolicy.deflateAll();
+        return this;
+    }
+
+    /**
+     * Whether the output buffer is allocated off-heap, which saves a copy on every write to the file.
+     */
+    public ArchiveOptions withDirectBuffers(boolean directBuffers) {
+        this.directBuffers = directBuffers;
+        return this;
+    }
+
+    /**
+     * Runs compression on an existing executor instead of a pool created for the run. The executor is
+     * not shut down afterwards. The thread count still limits how many entries are queued on it.
+     */
+    public ArchiveOptions withExecutor(ExecutorService executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * Checked between entries; when it returns true the run stops and the partial archive is deleted.
+     */
+    public ArchiveOptions withCancellation(BooleanSupplier cancellation) {
+        this.cancellation = cancellation != null ? cancellation : () -> false;
+        return this;
+    }
+
+    /**
+     * Adds a property to the archive's {@link ArchiveManifest}, such as the resolution the config was made for.
+     */
+    public ArchiveOptions withProperty(String key, String value) {
+        if (value != null) {
+            properties.put(key, value);
+        }
+        return this;
+    }
+
+    public int getThreads() { return threads; }
+    public String getTarget() { return target; }
+    public Path getBaseArchive() { return baseArchive; }
+    public CompressionPolicy getCompressionPolicy() { return compressionPolicy; }
+    public boolean isDirectBuffers() { return directBuffers; }
+    public ExecutorService getExecutor() { return executor; }
+    public BooleanSupplier getCancellation() { return cancellation; }
+    public Map<String, String> getProperties() { return properties; }
+
+    public boolean isParallel() { return threads > 1; }
+    public boolean isIncremental() { return baseArchive != null; }
+}
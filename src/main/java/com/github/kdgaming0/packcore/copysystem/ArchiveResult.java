@@ -0,0 +1,72 @@
+package com.github.kdgaming0.packcore.copysystem;
+
+import java.nio.file.Path;
+
+/**
+ * Outcome of one {@link ZipArchiver} run: whether it succeeded, how many entries were written and how
+ * many bytes went in and out, and how long it took.
+ */
+public class ArchiveResult {
+    private final boolean success;
+    private final Path archive;
+    private final int entryCount;
+    private final int storedEntries;
+    private final int reusedEntries;
+    private final long bytesIn;
+    private final long bytesOut;
+    private final long elapsedMillis;
+
+    ArchiveResult(boolean success, Path archive, int entryCount, int storedEntries, int reusedEntries,
+                  long bytesIn, long bytesOut, long elapsedMillis) {
+        this.success = success;
+        this.archive = archive;
+        this.entryCount = entryCount;
+        this.storedEntries = storedEntries;
+        this.reusedEntries = reusedEntries;
+        this.bytesIn = bytesIn;
+        this.bytesOut = bytesOut;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    static ArchiveResult failed(Path archive, long elapsedMillis) {
+        return new ArchiveResult(false, archive, 0, 0, 0, 0, 0, elapsedMillis);
+    }
+
+    public boolean isSuccess() { return success; }
+    public Path getArchive() { return archive; }
+    public int getEntryCount() { return entryCount; }
+    /** Entries written without compression because the policy considered them already compressed. */
+    public int getStoredEntries() { return storedEntries; }
+    /** Entries copied unchanged from the base archive in incremental mode. */
+    public int getReusedEntries() { return reusedEntries; }
+    /** Total size of the source files. */
+    public long getBytesIn() { return bytesIn; }
+    /** Size of the finished archive. */
+    public long getBytesOut() { return bytesOut; }
+    public long getElapsedMillis() { return elapsedMillis; }
+
+    /**
+     * A one line summary such as "1204 entries, 85.2 MB -> 41.7 MB in 3.4 s".
+     */
+    public String describe() {
+        if (!success) {
+            return "failed after " + formatSeconds(elapsedMillis);
+        }
+        return entryCount + " entries, " + formatSize(bytesIn) + " -> " + formatSize(bytesOut) + " in "
+                + formatSeconds(elapsedMillis);
+    }
+
+    private static String formatSize(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        if (bytes < 1024 * 1024) {
+            return String.format("%.1f KB", bytes / 1024.0);
+        }
+        return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+
+    private static String formatSeconds(long millis) {
+        return String.format("%.1f s", millis / 1000.0);
+    }
+}
@@ -0,0 +1,76 @@
+package com.github.kdgaming0.packcore.copysystem;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.ToIntFunction;
+
+/**
+ * A small pool of large copy buffers shared by archive runs, so a run does not allocate (and later
+ * garbage collect) several hundred kilobytes of buffers every time. Direct buffers are kept separately;
+ * they avoid the extra copy the JDK makes when a heap buffer is written to a channel.
+ * <p>
+ * Buffers of a different size than requested are never handed out. The pool keeps at most
+ * {@link #MAX_POOLED} buffers of each kind; anything released beyond that is left to the garbage collector.
+ */
+final class BufferPool {
+    static final BufferPool SHARED = new BufferPool();
+
+    private static final int MAX_POOLED = 8;
+
+    private final ConcurrentLinkedQueue<byte[]> arrays = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<ByteBuffer> heapBuffers = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<ByteBuffer> directBuffers = new ConcurrentLinkedQueue<>();
+
+    private BufferPool() {
+    }
+
+    byte[] acquireArray(int size) {
+        byte[] array = poll(arrays, size, a -> a.length);
+        return array != null ? array : new byte[size];
+    }
+
+    void release(byte[] array) {
+        if (array != null && arrays.size() < MAX_POOLED) {
+            arrays.add(array);
+        }
+    }
+
+    /**
+     * Returns a cleared buffer of exactly the given capacity.
+     */
+    ByteBuffer acquireBuffer(int size, boolean direct) {
+        ByteBuffer buffer = poll(direct ? directBuffers : heapBuffers, size, ByteBuffer::capacity);
+        if (buffer == null) {
+            return direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    void release(ByteBuffer buffer) {
+        if (buffer == null) {
+            return;
+        }
+        ConcurrentLinkedQueue<ByteBuffer> queue = buffer.isDirect() ? directBuffers : heapBuffers;
+        if (queue.size() < MAX_POOLED) {
+            queue.add(buffer);
+        }
+    }
+
+    /**
+     * Takes a buffer of the requested size from the queue, putting back any other sizes it finds.
+     */
+    private static <T> T poll(ConcurrentLinkedQueue<T> queue, int size, ToIntFunction<T> capacity) {
+        for (int attempts = queue.size(); attempts > 0; attempts--) {
+            T buffer = queue.poll();
+            if (buffer == null) {
+                return null;
+            }
+            if (capacity.applyAsInt(buffer) == size) {
+                return buffer;
+            }
+            queue.add(buffer);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,147 @@
+package com.github.kdgaming0.packcore.copysystem;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+
+/**
+ * Decides per entry whether a file should be DEFLATED or STORED as-is.
+ * <p>
+ * Files that are already compressed (textures, sounds, nested jars and archives) gain next to nothing from
+ * being deflated again, so they are stored. The decision is made by file extension first, then by the
+ * magic bytes at the start of the file, and optionally by deflating a small sample of the file quickly
+ * and storing it when the sample barely shrinks.
+ */
+public final class CompressionPolicy {
+
+    private static final Set<String> COMPRESSED_EXTENSIONS = new HashSet<>(Arrays.asList(
+            "png", "jpg", "jpeg", "gif", "webp",
+            "ogg", "mp3", "m4a", "opus",
+            "jar", "zip", "gz", "tgz", "xz", "7z", "rar", "bz2", "zst", "lzma", "mcpack"
+    ));
+
+    /**
+     * Files smaller than this are never probed, the saving would not be measurable.
+     */
+    private static final int PROBE_MIN_SIZE = 4096;
+    private static final int PROBE_SAMPLE_SIZE = 64 * 1024;
+    /**
+     * A sample that deflates to more than this fraction of its size is considered incompressible.
+     */
+    private static final double PROBE_STORE_RATIO = 0.95;
+
+    private final boolean enabled;
+    private final boolean probe;
+
+    private CompressionPolicy(boolean enabled, boolean probe) {
+        this.enabled = enabled;
+        this.probe = probe;
+    }
+
+    /**
+     * Stores already-compressed files detected by extension or magic bytes, and probes everything else.
+     */
+    public static CompressionPolicy defaults() {
+        return new CompressionPolicy(true, true);
+    }
+
+    /**
+     * Deflates every entry, like a plain {@link java.util.zip.ZipOutputStream}.
+     */
+    public static CompressionPolicy deflateAll() {
+        return new CompressionPolicy(false, false);
+    }
+
+    /**
+     * Returns a copy of this policy with the sampled compressibility probe turned on or off.
+     */
+    public CompressionPolicy withProbe(boolean probe) {
+        return new CompressionPolicy(enabled, probe);
+    }
+
+    /**
+     * Picks the storage method for an entry.
+     *
+     * @param name Entry name, used for the extension check
+     * @param head The first bytes of the file (or the whole file)
+     * @param length Number of valid bytes in {@code head}
+     * @param probeDeflater Deflater to use for the probe; it is left reset at the default level. May be null,
+     *                      in which case a temporary one is created when a probe is needed
+     * @return {@link ZipEntry#STORED} or {@link ZipEntry#DEFLATED}
+     */
+    public int selectMethod(String name, byte[] head, int length, Deflater probeDeflater) {
+        if (!enabled) {
+            return ZipEntry.DEFLATED;
+        }
+        if (hasCompressedExtension(name) || hasCompressedMagic(head, length)) {
+            return ZipEntry.STORED;
+        }
+        if (probe && length >= PROBE_MIN_SIZE && isIncompressible(head, Math.min(length, PROBE_SAMPLE_SIZE), probeDeflater)) {
+            return ZipEntry.STORED;
+        }
+        return ZipEntry.DEFLATED;
+    }
+
+    static boolean hasCompressedExtension(String name) {
+        int dot = name.lastIndexOf('.');
+        if (dot < 0 || dot < name.lastIndexOf('/')) {
+            return false;
+        }
+        return COMPRESSED_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    static boolean hasCompressedMagic(byte[] head, int length) {
+        if (length < 4) {
+            return false;
+        }
+        int b0 = head[0] & 0xFF, b1 = head[1] & 0xFF, b2 = head[2] & 0xFF, b3 = head[3] & 0xFF;
+
+        return (b0 == 0x89 && b1 == 'P' && b2 == 'N' && b3 == 'G')                  // PNG
+                || (b0 == 0xFF && b1 == 0xD8 && b2 == 0xFF)                          // JPEG
+                || (b0 == 'G' && b1 == 'I' && b2 == 'F' && b3 == '8')                // GIF
+                || (b0 == 'P' && b1 == 'K' && (b2 == 3 || b2 == 5 || b2 == 7))       // ZIP / JAR
+                || (b0 == 0x1F && b1 == 0x8B)                                        // GZIP
+                || (b0 == 'O' && b1 == 'g' && b2 == 'g' && b3 == 'S')                // OGG
+                || (b0 == 0xFD && b1 == '7' && b2 == 'z' && b3 == 'X')               // XZ
+                || (b0 == '7' && b1 == 'z' && b2 == 0xBC && b3 == 0xAF)              // 7-Zip
+                || (b0 == 'B' && b1 == 'Z' && b2 == 'h')                             // BZIP2
+                || (b0 == 0x28 && b1 == 0xB5 && b2 == 0x2F && b3 == 0xFD)            // Zstandard
+                || (b0 == 'R' && b1 == 'a' && b2 == 'r' && b3 == '!')                // RAR
+                || (length >= 12 && b0 == 'R' && b1 == 'I' && b2 == 'F' && b3 == 'F'
+                    && head[8] == 'W' && head[9] == 'E' && head[10] == 'B' && head[11] == 'P'); // WebP
+    }
+
+    /**
+     * Deflates a sample at the fastest level and checks how much it shrank.
+     */
+    private static boolean isIncompressible(byte[] sample, int length, Deflater deflater) {
+        boolean temporary = deflater == null;
+        if (temporary) {
+            deflater = new Deflater(Deflater.BEST_SPEED, true);
+        }
+
+        try {
+            deflater.reset();
+            deflater.setLevel(Deflater.BEST_SPEED);
+            deflater.setInput(sample, 0, length);
+            deflater.finish();
+
+            byte[] output = new byte[8192];
+            long compressed = 0;
+            while (!deflater.finished()) {
+                compressed += deflater.deflate(output);
+            }
+            return compressed > length * PROBE_STORE_RATIO;
+        } finally {
+            if (temporary) {
+                deflater.end();
+            } else {
+                deflater.reset();
+                deflater.setLevel(Deflater.DEFAULT_COMPRESSION);
+            }
+        }
+    }
+}
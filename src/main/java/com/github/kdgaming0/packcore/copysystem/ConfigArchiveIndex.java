@@ -0,0 +1,410 @@
+package com.github.kdgaming0.packcore.copysystem;
+
+import com.github.kdgaming0.packcore.task.PackCoreTasks;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared list of the config archives and snapshots in the Skyblock Enhanced folder.
+ * <p>
+ * The lists are loaded from a small cache file that also records each archive's size and modification
+ * time. On load, the folders are listed and only archives whose size or time differ from the cache are
+ * opened again, so a start without changes stats the files instead of reading every archive, and an
+ * archive replaced while the game was closed is still noticed. While the game runs, a {@link WatchService}
+ * thread rescans a folder whenever something in it changes. Callers get immutable lists and never touch the
+ * filesystem themselves.
+ */
+public final class ConfigArchiveIndex {
+    private static final Logger LOGGER = LogManager.getLogger(ConfigArchiveIndex.class);
+
+    private static final String CACHE_FILE = ".config-index.json";
+    private static final int CACHE_VERSION = 2;
+    /** How long a folder must be quiet before it is rescanned, so an archive being written is read once. */
+    private static final long SETTLE_MILLIS = 250;
+    private static final Gson gson = new Gson();
+    private static final Map<Path, ConfigArchiveIndex> INDEXES = new ConcurrentHashMap<>();
+
+    private final Path skyblockFolder;
+    private final Map<ConfigType, Listing> listings = new EnumMap<>(ConfigType.class);
+    private volatile boolean watching;
+
+    private ConfigArchiveIndex(Path skyblockFolder) {
+        this.skyblockFolder = skyblockFolder;
+    }
+
+    /**
+     * The index of a Skyblock Enhanced folder, loaded on first use and shared by every caller afterwards.
+     */
+    public static ConfigArchiveIndex get(File skyblockFolder) {
+        return INDEXES.computeIfAbsent(skyblockFolder.toPath().toAbsolutePath().normalize(), ConfigArchiveIndex::load);
+    }
+
+    private static ConfigArchiveIndex load(Path skyblockFolder) {
+        long start = System.nanoTime();
+        ConfigArchiveIndex index = new ConfigArchiveIndex(skyblockFolder);
+        Map<String, Listing> cached = index.readCache();
+
+        int read = 0;
+        boolean changed = false;
+        synchronized (index) {
+            for (ConfigType type : ConfigType.values()) {
+                Listing listing = index.scan(type, cached.get(type.name()));
+                read += listing.read;
+                changed |= listing.changed;
+                index.listings.put(type, listing);
+            }
+            if (changed) {
+                index.writeCache();
+            }
+        }
+
+        index.startWatching();
+        LOGGER.info("Config index loaded in {} ms ({} archives read)", (System.nanoTime() - start) / 1_000_000,
+                read);
+        return index;
+    }
+
+    /**
+     * The archives and snapshots of one config folder. The list is immutable and stays as it is; call again
+     * to see later changes.
+     */
+    public List<ConfigInfo> getConfigs(ConfigType type) {
+        if (!watching) {
+            // Without a watcher, stat the archives; only new or changed ones are read again
+            synchronized (this) {
+                update(type);
+            }
+        }
+        synchronized (this) {
+            return listings.get(type).configs;
+        }
+    }
+
+    /**
+     * Rescans a folder now instead of waiting for the watcher.
+     */
+    public synchronized void refresh(ConfigType type) {
+        update(type);
+    }
+
+    private void update(ConfigType type) {
+        Listing listing = scan(type, listings.get(type));
+        listings.put(type, listing);
+        if (listing.changed) {
+            writeCache();
+        }
+    }
+
+    /**
+     * Lists a folder, reusing the entries of {@code previous} whose file still has the same size and
+     * modification time.
+     *
+     * @param previous The last listing of the folder, or null to read every archive
+     */
+    private Listing scan(ConfigType type, Listing previous) {
+        File folder = skyblockFolder.resolve(type.getFolderName()).toFile();
+        Map<String, ConfigInfo> known = new HashMap<>();
+        if (previous != null && previous.configs != null && previous.stamps != null) {
+            for (ConfigInfo config : previous.configs) {
+                known.put(config.getName(), config);
+            }
+        }
+
+        Listing listing = new Listing();
+        listing.stamps = new HashMap<>();
+        List<ConfigInfo> archives = new ArrayList<>();
+        List<ConfigInfo> snapshots = new ArrayList<>();
+        File[] files = folder.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                boolean archive = name.toLowerCase().endsWith(".zip");
+                if (!file.isFile() || !(archive || SnapshotStore.isSnapshot(name))) {
+                    continue;
+                }
+
+                Stamp stamp = new Stamp(file.length(), file.lastModified());
+                ConfigInfo config = known.get(name);
+                if (config == null || !stamp.equals(previous.stamps.get(name))) {
+                    config = archive ? new ConfigInfo(name, stamp.size, readManifest(file)) : readSnapshot(file);
+                    if (config == null) {
+                        // Tried again on the next scan
+                        continue;
+                    }
+                    listing.read++;
+                }
+                listing.stamps.put(name, stamp);
+                (archive ? archives : snapshots).add(config);
+            }
+        }
+
+        List<ConfigInfo> configs = new ArrayList<>(archives);
+        configs.addAll(snapshots);
+        listing.configs = Collections.unmodifiableList(configs);
+        // Nothing was read and nothing was removed, so the names are the same as before
+        listing.changed = previous == null || listing.read > 0 || known.size() != configs.size();
+        return listing;
+    }
+
+    private static ArchiveManifest readManifest(File archive) {
+        try {
+            return ArchiveManifest.read(archive.toPath());
+        } catch (IOException e) {
+            LOGGER.warn("Could not read manifest of {}", archive.getName(), e);
+            return null;
+        }
+    }
+
+    private static ConfigInfo readSnapshot(File manifestFile) {
+        try {
+            return SnapshotStore.readSnapshotInfo(manifestFile);
+        } catch (IOException e) {
+            LOGGER.warn("Skipping unreadable snapshot: {}", manifestFile.getName());
+            return null;
+        }
+    }
+
+    /**
+     * Watches the Skyblock Enhanced folder for config folders being created and each config folder for
+     * changes. If the folder does not exist yet or the platform has no watch service, the index falls back
+     * to checking folder modification times on every call.
+     */
+    private void startWatching() {
+        if (!Files.isDirectory(skyblockFolder)) {
+            return;
+        }
+        WatchService service = null;
+        try {
+            service = skyblockFolder.getFileSystem().newWatchService();
+            skyblockFolder.register(service, StandardWatchEventKinds.ENTRY_CREATE);
+            for (ConfigType type : ConfigType.values()) {
+                registerFolder(service, skyblockFolder.resolve(type.getFolderName()));
+            }
+
+            WatchService watchService = service;
+            PackCoreTasks.closeOnShutdown(watchService);
+            watching = true;
+            PackCoreTasks.newThread("PackCore-ConfigIndex", () -> watch(watchService)).start();
+        } catch (IOException | UnsupportedOperationException e) {
+            LOGGER.warn("Could not watch config folders, falling back to checking them on access", e);
+            closeQuietly(service);
+        }
+    }
+
+    private static void closeQuietly(WatchService service) {
+        if (service != null) {
+            try {
+                service.close();
+            } catch (IOException e) {
+                // Already unusable
+            }
+        }
+    }
+
+    private static void registerFolder(WatchService service, Path folder) throws IOException {
+        if (Files.isDirectory(folder)) {
+            folder.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+        }
+    }
+
+    private void watch(WatchService service) {
+        try {
+            while (true) {
+                Set<ConfigType> changed = EnumSet.noneOf(ConfigType.class);
+                WatchKey key = service.take();
+                while (key != null) {
+                    collectChanges(service, key, changed);
+                    key = service.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+                }
+
+                if (changed.isEmpty()) {
+                    continue;
+                }
+                synchronized (this) {
+                    boolean rewrite = false;
+                    for (ConfigType type : changed) {
+                        Listing listing = scan(type, listings.get(type));
+                        listings.put(type, listing);
+                        rewrite |= listing.changed;
+                    }
+                    if (rewrite) {
+                        writeCache();
+                    }
+                }
+                LOGGER.debug("Config index updated for {}", changed);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // Nothing to clean up
+        } finally {
+            watching = false;
+        }
+    }
+
+    private void collectChanges(WatchService service, WatchKey key, Set<ConfigType> changed) {
+        Path folder = (Path) key.watchable();
+        ConfigType folderType = typeOf(folder);
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                changed.addAll(EnumSet.allOf(ConfigType.class));
+            } else if (folderType != null) {
+                changed.add(folderType);
+            } else {
+                // A config folder was created, or recreated after being deleted
+                Path child = folder.resolve((Path) event.context());
+                if (isCacheFile(child)) {
+                    // Our own cache writes; reacting to them would rewrite the cache forever
+                    continue;
+                }
+                ConfigType childType = typeOf(child);
+                if (childType != null) {
+                    try {
+                        registerFolder(service, child);
+                    } catch (IOException e) {
+                        LOGGER.warn("Could not watch {}", child, e);
+                    }
+                    changed.add(childType);
+                }
+            }
+        }
+
+        if (!key.reset() && folderType != null) {
+            // The folder itself is gone
+            changed.add(folderType);
+        }
+    }
+
+    private static boolean isCacheFile(Path file) {
+        String name = file.getFileName().toString();
+        return name.equals(CACHE_FILE) || name.equals(CACHE_FILE + ".tmp");
+    }
+
+    private ConfigType typeOf(Path folder) {
+        if (!skyblockFolder.equals(folder.getParent())) {
+            return null;
+        }
+        for (ConfigType type : ConfigType.values()) {
+            if (type.getFolderName().equals(folder.getFileName().toString())) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    private Map<String, Listing> readCache() {
+        Path cacheFile = skyblockFolder.resolve(CACHE_FILE);
+        if (!Files.isRegularFile(cacheFile)) {
+            return Collections.emptyMap();
+        }
+        try (Reader reader = Files.newBufferedReader(cacheFile, StandardCharsets.UTF_8)) {
+            Cache cache = gson.fromJson(reader, Cache.class);
+            if (cache == null || cache.version != CACHE_VERSION || cache.folders == null) {
+                return Collections.emptyMap();
+            }
+            for (Listing listing : cache.folders.values()) {
+                if (listing.configs != null) {
+                    listing.configs = Collections.unmodifiableList(new ArrayList<>(listing.configs));
+                }
+            }
+            return cache.folders;
+        } catch (IOException | JsonParseException e) {
+            LOGGER.warn("Ignoring unreadable config index {}", cacheFile, e);
+            return Collections.emptyMap();
+        }
+    }
+
+    /**
+     * Replaces the cache file. The cache is only a shortcut, so a failed write is logged and otherwise ignored.
+     */
+    private void writeCache() {
+        if (!Files.isDirectory(skyblockFolder)) {
+            return;
+        }
+        Cache cache = new Cache();
+        cache.version = CACHE_VERSION;
+        cache.folders = new LinkedHashMap<>();
+        for (Map.Entry<ConfigType, Listing> entry : listings.entrySet()) {
+            cache.folders.put(entry.getKey().name(), entry.getValue());
+        }
+
+        Path cacheFile = skyblockFolder.resolve(CACHE_FILE);
+        Path temp = skyblockFolder.resolve(CACHE_FILE + ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                gson.toJson(cache, writer);
+            }
+            Files.move(temp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.warn("Could not write config index {}", cacheFile, e);
+        }
+    }
+
+    /**
+     * On-disk cache, serialized with Gson.
+     */
+    private static final class Cache {
+        int version;
+        Map<String, Listing> folders;
+    }
+
+    private static final class Listing {
+        List<ConfigInfo> configs;
+        /** Size and modification time of each listed file, by file name. */
+        Map<String, Stamp> stamps;
+        transient int read;
+        transient boolean changed;
+    }
+
+    private static final class Stamp {
+        final long size;
+        final long modified;
+
+        Stamp(long size, long modified) {
+            this.size = size;
+            this.modified = modified;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof Stamp)) return false;
+            Stamp that = (Stamp) obj;
+            return size == that.size && modified == that.modified;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(size) * 31 + Long.hashCode(modified);
+        }
+    }
+}
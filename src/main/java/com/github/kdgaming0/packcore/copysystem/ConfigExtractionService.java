@@ -1,12 +1,18 @@
 package com.github.kdgaming0.packcore.copysystem;
 
+import com.github.kdgaming0.packcore.task.PackCoreTasks;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
 import java.util.function.Consumer;
 
 /**
@@ -15,6 +21,8 @@ import java.util.function.Consumer;
  */
 public class ConfigExtractionService {
     private static final Logger LOGGER = LogManager.getLogger(ConfigExtractionService.class);
+    private static final int PIPELINE_MAX_CPU_THREADS = 2;
+    private static final int PIPELINE_WRITERS = 2;
 
     private final File minecraftRoot;
     private final File skyblockFolder;
@@ -30,8 +38,8 @@ public class ConfigExtractionService {
      * Analyzes available configs and determines what action to take
      */
     public ConfigSelectionResult selectAndExtractConfig() {
-        List<ConfigInfo> officialConfigs = scanForConfigs("OfficialConfigs");
-        List<ConfigInfo> customConfigs = scanForConfigs("CustomConfigs");
+        List<ConfigInfo> officialConfigs = getOfficialConfigs();
+        List<ConfigInfo> customConfigs = getCustomConfigs();
 
         // If custom configs exist, always show dialog for user choice
         if (!customConfigs.isEmpty()) {
@@ -50,26 +58,30 @@ public class ConfigExtractionService {
     }
 
     /**
-     * Scans a specific folder for config files
+     * A quick guess from directory listings alone whether {@link #selectAndExtractConfig()} will ask for the
+     * dialog: custom configs exist, or there is more than one official config. Lets the caller start
+     * preparing the dialog before the scan is done.
      */
-    private List<ConfigInfo> scanForConfigs(String folderName) {
-        List<ConfigInfo> configs = new ArrayList<>();
-        File folder = new File(skyblockFolder, folderName);
-
-        if (!folder.exists() || !folder.isDirectory()) {
-            return configs;
-        }
+    public boolean isDialogLikely() {
+        return countConfigFiles(ConfigType.CUSTOM, 1) >= 1 || countConfigFiles(ConfigType.OFFICIAL, 2) >= 2;
+    }
 
-        File[] files = folder.listFiles();
-        if (files != null) {
-            for (File file : files) {
-                if (file.isFile() && file.getName().toLowerCase().endsWith(".zip")) {
-                    configs.add(new ConfigInfo(file.getName(), file.length()));
+    private int countConfigFiles(ConfigType configType, int limit) {
+        Path folder = new File(skyblockFolder, configType.getFolderName()).toPath();
+        int count = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder)) {
+            for (Path file : stream) {
+                String fileName = file.getFileName().toString();
+                if (fileName.toLowerCase().endsWith(".zip") || SnapshotStore.isSnapshot(fileName)) {
+                    if (++count >= limit) {
+                        break;
+                    }
                 }
             }
+        } catch (IOException e) {
+            // A missing folder has no configs
         }
-
-        return configs;
+        return count;
     }
 
     /**
@@ -85,27 +97,166 @@ public class ConfigExtractionService {
      * Extracts a specific config file with progress callback
      */
     public boolean extractConfig(String configName, ConfigType configType, Consumer<Integer> progressCallback) {
-        String subfolderName = configType == ConfigType.OFFICIAL ? "OfficialConfigs" : "CustomConfigs";
-        File configFile = new File(new File(skyblockFolder, subfolderName), configName);
+        return extractConfig(configName, configType, progressCallback, false).isSuccess();
+    }
+
+    /**
+     * Extracts a specific config file with progress callback. With skipUnchanged, files that already match
+     * the config are not rewritten; the result says how many files were written and how many were skipped.
+     */
+    public ExtractionResult extractConfig(String configName, ConfigType configType, Consumer<Integer> progressCallback,
+                                          boolean skipUnchanged) {
+        return extractConfig(configName, configType, progressCallback,
+                createExtractionOptions().withSkipUnchanged(skipUnchanged));
+    }
+
+    /**
+     * Applies a config in two steps for the pre-launch path. Files directly in the Minecraft folder, such as
+     * options.txt, are read as soon as the game starts and are applied before this returns. Files in
+     * subfolders, such as mod configs and resource packs, are applied on a PackCore IO thread, and the
+     * caller must wait for the returned future before anything reads them. Both steps share one
+     * transaction: if the second step fails, or the game stops before it finishes, the root files are put
+     * back too, so the game never starts with half a config.
+     *
+     * @return a future that completes with true once the whole config is in place
+     */
+    public Future<Boolean> extractConfigInBackground(String configName, ConfigType configType) {
+        Consumer<Integer> progressCallback = progress -> LOGGER.debug("Extraction progress: {}%", progress);
+        ConfigTransaction transaction;
+        try {
+            transaction = ConfigTransaction.begin(minecraftRoot);
+        } catch (IOException e) {
+            LOGGER.error("Failed to start applying config: {}", configName, e);
+            return CompletableFuture.completedFuture(false);
+        }
+
+        ExtractionResult rootFiles;
+        try {
+            rootFiles = extractConfig(configName, configType, progressCallback, createExtractionOptions()
+                    .withEntryFilter(ConfigExtractionService::isRootFile)
+                    .withTransaction(transaction, true));
+        } catch (RuntimeException e) {
+            rollback(transaction, configName);
+            throw e;
+        }
+        if (!rootFiles.isSuccess()) {
+            rollback(transaction, configName);
+            return CompletableFuture.completedFuture(false);
+        }
+
+        return PackCoreTasks.io().submit(() -> {
+            boolean success = false;
+            try {
+                ExtractionResult subfolderFiles = extractConfig(configName, configType, progressCallback,
+                        createExtractionOptions()
+                                .withEntryFilter(entryName -> !isRootFile(entryName))
+                                .withTransaction(transaction, false));
+                if (subfolderFiles.isSuccess() && transaction.getState() != ConfigTransaction.State.COMMITTED) {
+                    // No subfolder files were written, so the extraction left the transaction open
+                    transaction.commit(Collections.emptyList());
+                }
+                success = subfolderFiles.isSuccess();
+            } catch (IOException e) {
+                LOGGER.error("Failed to finish applying config: {}", configName, e);
+            } finally {
+                if (!success) {
+                    rollback(transaction, configName);
+                }
+            }
+            return success;
+        });
+    }
+
+    private static void rollback(ConfigTransaction transaction, String configName) {
+        try {
+            transaction.rollback();
+        } catch (IOException e) {
+            LOGGER.error("Could not roll back the partly applied config {}; it is restored on the next start",
+                    configName, e);
+        }
+    }
+
+    private static boolean isRootFile(String entryName) {
+        return entryName.indexOf('/') < 0;
+    }
+
+    private ExtractionResult extractConfig(String configName, ConfigType configType, Consumer<Integer> progressCallback,
+                                           ExtractionOptions options) {
+        long startTime = System.currentTimeMillis();
+        File configFile = new File(new File(skyblockFolder, configType.getFolderName()), configName);
 
         if (!configFile.exists()) {
             LOGGER.error("Config file not found: {}", configFile.getAbsolutePath());
-            return false;
+            return ExtractionResult.failed(0);
         }
 
         try {
-            return extractor.extractZipToDirectory(configFile, minecraftRoot, progressCallback);
+            // Configs are always applied as a transaction, so a failed apply leaves the old files in place
+            options.withStaging(true);
+            if (SnapshotStore.isSnapshot(configName)) {
+                return new SnapshotStore(configFile.getParentFile())
+                        .extractSnapshot(configName, minecraftRoot, progressCallback, options);
+            }
+            return extractor.extractZipToDirectory(configFile, minecraftRoot, progressCallback, options);
         } catch (IOException e) {
             LOGGER.error("Failed to extract config: {}", configName, e);
+            return ExtractionResult.failed(System.currentTimeMillis() - startTime);
+        }
+    }
+
+    /**
+     * With enough cores, entries are split across the shared CPU pool. With only a few, inflating on one
+     * thread while two writers handle the disk is faster; the writers get their own threads, since the
+     * pipeline needs all of them running at once.
+     */
+    private static ExtractionOptions createExtractionOptions() {
+        if (PackCoreTasks.getCpuThreads() <= PIPELINE_MAX_CPU_THREADS) {
+            return ExtractionOptions.defaults().withThreads(PIPELINE_WRITERS).withPipeline(true);
+        }
+        return ExtractionOptions.defaults()
+                .withThreads(PackCoreTasks.getCpuThreads())
+                .withExecutor(PackCoreTasks.cpu());
+    }
+
+    /**
+     * Rolls back a config apply that was interrupted while its files were being moved into place, and
+     * removes leftover staging folders. Should run at startup before anything reads the configs.
+     *
+     * @return the number of interrupted applies that were rolled back
+     */
+    public int recoverInterruptedApply() {
+        return ConfigTransaction.recover(minecraftRoot);
+    }
+
+    /**
+     * Puts back the files replaced by the last config apply.
+     *
+     * @return false if there is no apply to undo or the rollback failed
+     */
+    public boolean rollbackLastApply() {
+        try {
+            return ConfigTransaction.rollbackLast(minecraftRoot);
+        } catch (IOException e) {
+            LOGGER.error("Failed to roll back the last config apply", e);
             return false;
         }
     }
 
+    public File getMinecraftRoot() {
+        return minecraftRoot;
+    }
+
+    /**
+     * Official configs from the shared {@link ConfigArchiveIndex}; the list is immutable.
+     */
     public List<ConfigInfo> getOfficialConfigs() {
-        return scanForConfigs("OfficialConfigs");
+        return ConfigArchiveIndex.get(skyblockFolder).getConfigs(ConfigType.OFFICIAL);
     }
 
+    /**
+     * Custom configs from the shared {@link ConfigArchiveIndex}; the list is immutable.
+     */
     public List<ConfigInfo> getCustomConfigs() {
-        return scanForConfigs("CustomConfigs");
+        return ConfigArchiveIndex.get(skyblockFolder).getConfigs(ConfigType.CUSTOM);
     }
 }
@@ -6,28 +6,75 @@ import org.apache.logging.log4j.Logger;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipException;
 import java.util.zip.ZipFile;
 
 /**
  * Handles the actual extraction of ZIP files with proper error handling and progress reporting.
+ * <p>
+ * In parallel mode the entries are split across workers by uncompressed size, and every worker reads
+ * the archive through its own {@link ZipFile} handle. In pipelined mode the calling thread inflates
+ * entries into recycled chunks and writer threads drain them to disk through bounded queues. With {@link ExtractionOptions#withSkipUnchanged}
+ * files whose size and CRC already match their entry are not rewritten. With
+ * {@link ExtractionOptions#withStaging} the files are applied through a {@link ConfigTransaction}.
  */
 public class ConfigExtractor {
     private static final Logger LOGGER = LogManager.getLogger(ConfigExtractor.class);
 
+    /** Archives with fewer entries per worker than this are not worth splitting further. */
+    private static final int MIN_ENTRIES_PER_WORKER = 16;
+    private static final int COMPARE_BUFFER_SIZE = 64 * 1024;
+    private static final int PIPELINE_CHUNK_SIZE = 64 * 1024;
+    /** Chunks each writer may have queued; with the chunk size this caps the read-ahead per writer. */
+    private static final int PIPELINE_QUEUE_CHUNKS = 16;
+    private static final long PIPELINE_POLL_MILLIS = 100;
+
     /**
-     * Extracts a ZIP file to the target directory with progress reporting
+     * Extracts a ZIP file to the target directory with progress reporting, on the calling thread
      */
     public boolean extractZipToDirectory(File zipFile, File targetDirectory, Consumer<Integer> progressCallback)
             throws IOException {
+        return extractZipToDirectory(zipFile, targetDirectory, progressCallback, ExtractionOptions.sequential())
+                .isSuccess();
+    }
+
+    /**
+     * Extracts a ZIP file to the target directory with progress reporting
+     *
+     * @return how many files were written and how many were skipped as unchanged
+     */
+    public ExtractionResult extractZipToDirectory(File zipFile, File targetDirectory,
+                                                  Consumer<Integer> progressCallback, ExtractionOptions options)
+            throws IOException {
+        long startTime = System.nanoTime();
 
         if (!zipFile.exists()) {
             throw new IOException("ZIP file does not exist: " + zipFile.getAbsolutePath());
@@ -37,82 +84,541 @@ public class ConfigExtractor {
             throw new IOException("Could not create target directory: " + targetDirectory.getAbsolutePath());
         }
 
+        List<PlannedEntry> entries;
         try (ZipFile zip = new ZipFile(zipFile)) {
-            List<ZipEntry> entries = collectEntries(zip);
+            entries = collectEntries(zip, targetDirectory, options.getEntryFilter());
+        } catch (ZipException e) {
+            throw new IOException("Invalid ZIP file: " + zipFile.getName(), e);
+        }
 
-            if (entries.isEmpty()) {
+        if (entries.isEmpty()) {
+            if (options.getEntryFilter() == null) {
                 LOGGER.warn("ZIP file is empty: {}", zipFile.getName());
-                return true;
             }
+            return new ExtractionResult(true, 0, 0, elapsedMillis(startTime));
+        }
 
-            return extractEntries(zip, entries, targetDirectory, progressCallback);
+        ConfigTransaction transaction = null;
+        if (options.isStaging()) {
+            transaction = options.getTransaction() != null ? options.getTransaction()
+                    : ConfigTransaction.begin(targetDirectory);
+            for (PlannedEntry entry : entries) {
+                entry.output = transaction.stagedPath(entry.name);
+            }
+        }
 
-        } catch (ZipException e) {
-            throw new IOException("Invalid ZIP file: " + zipFile.getName(), e);
+        int workers = Math.max(1, Math.min(options.getThreads(), entries.size() / MIN_ENTRIES_PER_WORKER));
+        ExtractionRun run = new ExtractionRun(entries.size(), progressCallback, options.isSkipUnchanged(),
+                transaction != null);
+
+        try {
+            createParentDirectories(entries);
+            if (options.isPipelined()) {
+                extractPipelined(zipFile, entries, run, workers, options);
+            } else if (workers == 1) {
+                extractPartition(zipFile, entries, run);
+            } else {
+                extractParallel(zipFile, partition(entries, workers), run, options);
+            }
+
+            if (transaction != null && options.isPartialCommit()) {
+                transaction.commitPart(writtenEntryNames(entries));
+            } else if (transaction != null) {
+                transaction.commit(writtenEntryNames(entries));
+            }
+        } catch (IOException | RuntimeException e) {
+            if (transaction != null && transaction.getState() == ConfigTransaction.State.STAGING) {
+                transaction.abort();
+            }
+            if (e instanceof ZipException) {
+                throw new IOException("Invalid ZIP file: " + zipFile.getName(), e);
+            }
+            throw e;
         }
+
+        ExtractionResult result = new ExtractionResult(true, run.writtenEntries.get(), run.skippedEntries.get(),
+                elapsedMillis(startTime));
+        LOGGER.info("Successfully extracted ZIP file using {} {}: {}", workers,
+                options.isPipelined() ? "writer(s)" : "worker(s)", result.describe());
+        return result;
     }
 
-    private List<ZipEntry> collectEntries(ZipFile zipFile) {
-        List<ZipEntry> entries = new ArrayList<>();
+    /**
+     * Lists the file entries with their validated target paths. Directory entries and the archive manifest
+     * are skipped; folders are created from the file paths instead.
+     */
+    private List<PlannedEntry> collectEntries(ZipFile zipFile, File targetDirectory, Predicate<String> filter)
+            throws IOException {
+        List<PlannedEntry> entries = new ArrayList<>();
         Enumeration<? extends ZipEntry> enumeration = zipFile.entries();
 
         while (enumeration.hasMoreElements()) {
             ZipEntry entry = enumeration.nextElement();
-            // Skip directory entries, we'll create them as needed
-            if (!entry.isDirectory()) {
-                entries.add(entry);
+            // The manifest describes the archive, it is not part of the config
+            if (!entry.isDirectory() && !ArchiveManifest.ENTRY_NAME.equals(entry.getName())) {
+                // Validate entry name to prevent directory traversal attacks
+                String entryName = validateEntryName(entry.getName());
+                if (filter == null || filter.test(entryName)) {
+                    entries.add(new PlannedEntry(entry, entryName, new File(targetDirectory, entryName).toPath()));
+                }
             }
         }
 
         return entries;
     }
 
-    private boolean extractEntries(ZipFile zipFile, List<ZipEntry> entries, File targetDirectory,
-                                   Consumer<Integer> progressCallback) throws IOException {
+    /**
+     * Creates every parent folder of the output files once, instead of checking for it before each entry.
+     */
+    private static void createParentDirectories(List<PlannedEntry> entries) throws IOException {
+        Set<Path> parents = new HashSet<>();
+        for (PlannedEntry entry : entries) {
+            Path parent = entry.output.getParent();
+            if (parent != null && parents.add(parent)) {
+                Files.createDirectories(parent);
+            }
+        }
+    }
+
+    /**
+     * Splits the entries into partitions of roughly equal uncompressed size: the largest entries are
+     * placed first, each on the partition that currently holds the fewest bytes.
+     */
+    private static List<List<PlannedEntry>> partition(List<PlannedEntry> entries, int workers) {
+        List<PlannedEntry> bySize = new ArrayList<>(entries);
+        bySize.sort((a, b) -> Long.compare(b.weight, a.weight));
+
+        List<List<PlannedEntry>> partitions = new ArrayList<>(workers);
+        long[] loads = new long[workers];
+        for (int i = 0; i < workers; i++) {
+            partitions.add(new ArrayList<>());
+        }
+
+        for (PlannedEntry entry : bySize) {
+            int lightest = 0;
+            for (int i = 1; i < workers; i++) {
+                if (loads[i] < loads[lightest]) {
+                    lightest = i;
+                }
+            }
+            partitions.get(lightest).add(entry);
+            loads[lightest] += entry.weight;
+        }
+
+        return partitions;
+    }
+
+    private void extractParallel(File zipFile, List<List<PlannedEntry>> partitions, ExtractionRun run,
+                                 ExtractionOptions options) throws IOException {
+        ExecutorService sharedPool = options.getExecutor();
+        ExecutorService pool = sharedPool != null ? sharedPool : createPrivatePool(partitions.size());
+        AtomicBoolean failed = run.failed;
+        List<Future<?>> futures = new ArrayList<>(partitions.size());
 
-        int totalEntries = entries.size();
-        int processedEntries = 0;
+        try {
+            for (List<PlannedEntry> partition : partitions) {
+                futures.add(pool.submit(() -> {
+                    extractPartition(zipFile, partition, run);
+                    return null;
+                }));
+            }
 
-        for (ZipEntry entry : entries) {
+            awaitWorkers(futures, failed);
+        } catch (InterruptedException e) {
+            failed.set(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Extraction interrupted");
+        } finally {
+            if (sharedPool == null) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Waits for every worker, so no file is still being written when this returns, and rethrows the first failure.
+     */
+    private static void awaitWorkers(List<Future<?>> futures, AtomicBoolean failed)
+            throws IOException, InterruptedException {
+        IOException failure = null;
+        for (Future<?> future : futures) {
             try {
-                extractSingleEntry(zipFile, entry, targetDirectory);
-                processedEntries++;
+                future.get();
+            } catch (ExecutionException e) {
+                failed.set(true);
+                if (failure == null) {
+                    failure = e.getCause() instanceof IOException
+                            ? (IOException) e.getCause() : new IOException("Extraction worker failed", e.getCause());
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Inflates entries on the calling thread and hands the bytes to writer threads, so inflating and
+     * writing overlap. Each entry goes to the writer with the shortest queue and all of its chunks follow
+     * it there, in order. The queues are bounded, so a slow disk stalls the inflater instead of letting
+     * memory grow: at most {@link #PIPELINE_QUEUE_CHUNKS} chunks per writer are in flight.
+     */
+    private void extractPipelined(File zipFile, List<PlannedEntry> entries, ExtractionRun run, int writers,
+                                  ExtractionOptions options) throws IOException {
+        ExecutorService sharedPool = options.getExecutor();
+        ExecutorService pool = sharedPool != null ? sharedPool : createPrivatePool(writers);
+        ConcurrentLinkedQueue<byte[]> freeChunks = new ConcurrentLinkedQueue<>();
+        List<BlockingQueue<Chunk>> queues = new ArrayList<>(writers);
+        List<Future<?>> futures = new ArrayList<>(writers);
+        byte[] compareBuffer = run.skipUnchanged ? BufferPool.SHARED.acquireArray(COMPARE_BUFFER_SIZE) : null;
 
-                // Report progress
-                int progress = (int) ((double) processedEntries / totalEntries * 100);
-                progressCallback.accept(progress);
+        try {
+            for (int i = 0; i < writers; i++) {
+                BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(PIPELINE_QUEUE_CHUNKS);
+                queues.add(queue);
+                futures.add(pool.submit(() -> {
+                    drainToDisk(zipFile, queue, freeChunks, run);
+                    return null;
+                }));
+            }
 
-            } catch (IOException e) {
-                LOGGER.error("Failed to extract entry: {}", entry.getName(), e);
+            try {
+                inflateEntries(zipFile, entries, queues, freeChunks, run, compareBuffer);
+            } catch (IOException | RuntimeException e) {
+                run.failed.set(true);
                 throw e;
+            } finally {
+                for (BlockingQueue<Chunk> queue : queues) {
+                    if (run.failed.get()) {
+                        queue.clear();
+                    }
+                    put(queue, Chunk.END, run, true);
+                }
+            }
+
+            awaitWorkers(futures, run.failed);
+        } catch (InterruptedException e) {
+            run.failed.set(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Extraction interrupted");
+        } finally {
+            if (sharedPool == null) {
+                pool.shutdown();
+            }
+            BufferPool.SHARED.release(compareBuffer);
+        }
+    }
+
+    /**
+     * The producer side of the pipeline.
+     */
+    private static void inflateEntries(File zipFile, List<PlannedEntry> entries, List<BlockingQueue<Chunk>> queues,
+                                       ConcurrentLinkedQueue<byte[]> freeChunks, ExtractionRun run,
+                                       byte[] compareBuffer) throws IOException, InterruptedException {
+        try (ZipFile zip = new ZipFile(zipFile);
+             ZipCentralDirectory directory = hasStoredEntries(entries)
+                     ? ZipCentralDirectory.open(zipFile.toPath()) : null) {
+
+            for (PlannedEntry entry : entries) {
+                if (run.failed.get()) {
+                    return;
+                }
+                if (compareBuffer != null && isUnchanged(entry, compareBuffer)) {
+                    run.skippedEntries.incrementAndGet();
+                    run.entryDone();
+                    continue;
+                }
+
+                BlockingQueue<Chunk> queue = shortestQueue(queues);
+                ZipCentralDirectory.Entry stored = findStoredEntry(directory, entry.entry);
+                if (stored != null) {
+                    // The writer transfers stored bytes itself, they never need to pass through a chunk
+                    put(queue, new Chunk(entry, stored), run, false);
+                    continue;
+                }
+
+                try (InputStream in = zip.getInputStream(entry.entry)) {
+                    boolean first = true;
+                    boolean last = false;
+                    while (!last) {
+                        byte[] data = freeChunks.poll();
+                        if (data == null) {
+                            data = new byte[PIPELINE_CHUNK_SIZE];
+                        }
+                        int length = readBlock(in, data);
+                        last = length < data.length;
+                        if (!put(queue, new Chunk(entry, data, length, first, last), run, false)) {
+                            return;
+                        }
+                        first = false;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The writer side of the pipeline. Runs until it takes {@link Chunk#END}; after a failure anywhere it
+     * only discards chunks.
+     */
+    private static void drainToDisk(File zipFile, BlockingQueue<Chunk> queue, ConcurrentLinkedQueue<byte[]> freeChunks,
+                                    ExtractionRun run) throws IOException, InterruptedException {
+        ZipCentralDirectory directory = null;
+        OutputStream out = null;
+        List<Path> staged = new ArrayList<>();
+
+        try {
+            for (Chunk chunk = queue.take(); chunk != Chunk.END; chunk = queue.take()) {
+                if (run.failed.get()) {
+                    continue;
+                }
+                PlannedEntry entry = chunk.entry;
+
+                if (chunk.stored != null) {
+                    if (directory == null) {
+                        directory = ZipCentralDirectory.open(zipFile.toPath());
+                    }
+                    transferStoredEntry(directory, chunk.stored, entry.output);
+                } else {
+                    if (chunk.first) {
+                        out = Files.newOutputStream(entry.output);
+                    }
+                    out.write(chunk.data, 0, chunk.length);
+                    freeChunks.add(chunk.data);
+                    if (!chunk.last) {
+                        continue;
+                    }
+                    out.close();
+                    out = null;
+                }
+
+                entry.written = true;
+                run.writtenEntries.incrementAndGet();
+                if (run.staging) {
+                    staged.add(entry.output);
+                }
+                run.entryDone();
+                LOGGER.debug("Extracted: {}", entry.entry.getName());
+            }
+
+            if (!run.failed.get()) {
+                ConfigTransaction.sync(staged);
+            }
+        } catch (IOException e) {
+            run.failed.set(true);
+            LOGGER.error("Failed to write extracted entry", e);
+            throw e;
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException ignored) {
+                }
+            }
+            if (directory != null) {
+                directory.close();
+            }
+        }
+    }
+
+    private static BlockingQueue<Chunk> shortestQueue(List<BlockingQueue<Chunk>> queues) {
+        BlockingQueue<Chunk> shortest = queues.get(0);
+        for (BlockingQueue<Chunk> queue : queues) {
+            if (queue.size() < shortest.size()) {
+                shortest = queue;
             }
         }
+        return shortest;
+    }
 
-        LOGGER.info("Successfully extracted {} entries from ZIP file", processedEntries);
+    /**
+     * Queues a chunk, waiting while the queue is full. Gives up when the run failed, because the writer
+     * may no longer be draining; the end marker is always delivered.
+     *
+     * @return false if the chunk was not queued
+     */
+    private static boolean put(BlockingQueue<Chunk> queue, Chunk chunk, ExtractionRun run, boolean force)
+            throws InterruptedException {
+        while (!queue.offer(chunk, PIPELINE_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+            if (run.failed.get()) {
+                if (!force) {
+                    return false;
+                }
+                queue.clear();
+            }
+        }
         return true;
     }
 
-    private void extractSingleEntry(ZipFile zipFile, ZipEntry entry, File targetDirectory) throws IOException {
-        // Validate entry name to prevent directory traversal attacks
-        String entryName = validateEntryName(entry.getName());
+    /**
+     * Reads until the buffer is full or the stream ends.
+     */
+    private static int readBlock(InputStream in, byte[] buffer) throws IOException {
+        int length = 0;
+        while (length < buffer.length) {
+            int read = in.read(buffer, length, buffer.length - length);
+            if (read == -1) {
+                break;
+            }
+            length += read;
+        }
+        return length;
+    }
+
+    private static ExecutorService createPrivatePool(int threads) {
+        AtomicInteger threadCounter = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "PackCore-Extract-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
 
-        Path targetPath = new File(targetDirectory, entryName).toPath();
+    /**
+     * Extracts one partition through its own archive handles. Stops early when another worker failed.
+     */
+    private void extractPartition(File zipFile, List<PlannedEntry> entries, ExtractionRun run) throws IOException {
+        byte[] compareBuffer = run.skipUnchanged ? BufferPool.SHARED.acquireArray(COMPARE_BUFFER_SIZE) : null;
+        List<Path> staged = new ArrayList<>();
+        try (ZipFile zip = new ZipFile(zipFile);
+             // Stored entries are transferred straight from the archive, which needs the raw data offsets
+             ZipCentralDirectory directory = hasStoredEntries(entries)
+                     ? ZipCentralDirectory.open(zipFile.toPath()) : null) {
+
+            for (PlannedEntry entry : entries) {
+                if (run.failed.get()) {
+                    return;
+                }
+                try {
+                    if (compareBuffer != null && isUnchanged(entry, compareBuffer)) {
+                        run.skippedEntries.incrementAndGet();
+                        LOGGER.debug("Unchanged, skipped: {}", entry.entry.getName());
+                    } else {
+                        extractSingleEntry(zip, directory, entry);
+                        entry.written = true;
+                        run.writtenEntries.incrementAndGet();
+                        if (run.staging) {
+                            staged.add(entry.output);
+                        }
+                    }
+                    run.entryDone();
+                } catch (IOException e) {
+                    run.failed.set(true);
+                    LOGGER.error("Failed to extract entry: {}", entry.entry.getName(), e);
+                    throw e;
+                }
+            }
 
-        // Create parent directories if they don't exist
-        Path parentPath = targetPath.getParent();
-        if (parentPath != null && !Files.exists(parentPath)) {
-            Files.createDirectories(parentPath);
+            // One flush pass after the whole partition is written, instead of one per file while writing
+            ConfigTransaction.sync(staged);
+        } finally {
+            BufferPool.SHARED.release(compareBuffer);
+        }
+    }
+
+    /**
+     * Whether the file on disk already holds exactly the entry's content. The size is compared first, so
+     * the CRC is only computed for files that could match.
+     */
+    private static boolean isUnchanged(PlannedEntry planned, byte[] buffer) throws IOException {
+        ZipEntry entry = planned.entry;
+        if (entry.getSize() < 0 || entry.getCrc() < 0) {
+            return false;
+        }
+
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(planned.target, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        if (!attributes.isRegularFile() || attributes.size() != entry.getSize()) {
+            return false;
+        }
+
+        CRC32 crc = new CRC32();
+        try (InputStream in = Files.newInputStream(planned.target)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                crc.update(buffer, 0, read);
+            }
+        }
+        return crc.getValue() == entry.getCrc();
+    }
+
+    private static List<String> writtenEntryNames(List<PlannedEntry> entries) {
+        List<String> names = new ArrayList<>();
+        for (PlannedEntry entry : entries) {
+            if (entry.written) {
+                names.add(entry.name);
+            }
+        }
+        return names;
+    }
+
+    private static boolean hasStoredEntries(List<PlannedEntry> entries) {
+        for (PlannedEntry entry : entries) {
+            if (entry.entry.getMethod() == ZipEntry.STORED) {
+                return true;
+            }
         }
+        return false;
+    }
+
+    private void extractSingleEntry(ZipFile zipFile, ZipCentralDirectory directory, PlannedEntry planned)
+            throws IOException {
+        ZipEntry entry = planned.entry;
+        Path targetPath = planned.output;
 
         // Extract the file
-        try (InputStream inputStream = zipFile.getInputStream(entry)) {
-            Files.copy(inputStream, targetPath, StandardCopyOption.REPLACE_EXISTING);
+        ZipCentralDirectory.Entry stored = findStoredEntry(directory, entry);
+        if (stored != null) {
+            transferStoredEntry(directory, stored, targetPath);
+        } else {
+            try (InputStream inputStream = zipFile.getInputStream(entry)) {
+                Files.copy(inputStream, targetPath, StandardCopyOption.REPLACE_EXISTING);
+            }
         }
 
-        LOGGER.debug("Extracted: {}", entryName);
+        LOGGER.debug("Extracted: {}", entry.getName());
     }
 
-    private String validateEntryName(String entryName) throws IOException {
+    private static ZipCentralDirectory.Entry findStoredEntry(ZipCentralDirectory directory, ZipEntry entry) {
+        if (directory == null || entry.getMethod() != ZipEntry.STORED) {
+            return null;
+        }
+        ZipCentralDirectory.Entry stored = directory.getEntry(entry.getName());
+        if (stored == null || stored.method != ZipEntry.STORED || stored.isEncrypted()
+                || stored.compressedSize != stored.size) {
+            return null;
+        }
+        return stored;
+    }
+
+    /**
+     * Copies a stored entry's bytes from the archive to the target file with {@link FileChannel#transferTo},
+     * so the data never passes through the Java heap.
+     */
+    private static void transferStoredEntry(ZipCentralDirectory directory, ZipCentralDirectory.Entry entry,
+                                            Path targetPath) throws IOException {
+        FileChannel source = directory.getChannel();
+        long position = directory.dataOffset(entry);
+        long remaining = entry.size;
+
+        try (FileChannel target = FileChannel.open(targetPath, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (remaining > 0) {
+                long transferred = source.transferTo(position, remaining, target);
+                if (transferred <= 0) {
+                    throw new ZipException("Unexpected end of ZIP file while extracting: " + entry.name);
+                }
+                position += transferred;
+                remaining -= transferred;
+            }
+        }
+    }
+
+    static String validateEntryName(String entryName) throws IOException {
         // Normalize the entry name and check for directory traversal
         String normalizedName = entryName.replace('\\', '/');
 
@@ -122,4 +628,96 @@ public class ConfigExtractor {
 
         return normalizedName;
     }
+
+    /**
+     * A piece of an entry on its way from the inflater to a writer, or a stored entry the writer transfers
+     * in one go.
+     */
+    private static final class Chunk {
+        static final Chunk END = new Chunk(null, null);
+
+        final PlannedEntry entry;
+        final byte[] data;
+        final int length;
+        final boolean first;
+        final boolean last;
+        final ZipCentralDirectory.Entry stored;
+
+        Chunk(PlannedEntry entry, byte[] data, int length, boolean first, boolean last) {
+            this.entry = entry;
+            this.data = data;
+            this.length = length;
+            this.first = first;
+            this.last = last;
+            this.stored = null;
+        }
+
+        Chunk(PlannedEntry entry, ZipCentralDirectory.Entry stored) {
+            this.entry = entry;
+            this.data = null;
+            this.length = 0;
+            this.first = true;
+            this.last = true;
+            this.stored = stored;
+        }
+    }
+
+    /**
+     * A file entry together with where it ends up and where it is written, which differ when staging.
+     */
+    private static final class PlannedEntry {
+        final ZipEntry entry;
+        final String name;
+        final Path target;
+        Path output;
+        /** Uncompressed size used to balance partitions; unknown sizes count as the compressed size. */
+        final long weight;
+        volatile boolean written;
+
+        PlannedEntry(ZipEntry entry, String name, Path target) {
+            this.entry = entry;
+            this.name = name;
+            this.target = target;
+            this.output = target;
+            long size = entry.getSize() >= 0 ? entry.getSize() : entry.getCompressedSize();
+            this.weight = Math.max(0, size);
+        }
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * State shared by the workers of one extraction. Progress is counted over all workers and each
+     * percentage is reported at most once, in increasing order.
+     */
+    private static final class ExtractionRun {
+        final boolean skipUnchanged;
+        final boolean staging;
+        final AtomicBoolean failed = new AtomicBoolean();
+        final AtomicInteger writtenEntries = new AtomicInteger();
+        final AtomicInteger skippedEntries = new AtomicInteger();
+        private final int totalEntries;
+        private final Consumer<Integer> callback;
+        private final AtomicInteger processedEntries = new AtomicInteger();
+        private int lastReported = -1;
+
+        ExtractionRun(int totalEntries, Consumer<Integer> callback, boolean skipUnchanged, boolean staging) {
+            this.totalEntries = totalEntries;
+            this.callback = callback;
+            this.skipUnchanged = skipUnchanged;
+            this.staging = staging;
+        }
+
+        void entryDone() {
+            int progress = (int) ((double) processedEntries.incrementAndGet() / totalEntries * 100);
+            synchronized (this) {
+                if (progress > lastReported) {
+                    lastReported = progress;
+                    callback.accept(progress);
+                }
+            }
+        }
+    }
 }
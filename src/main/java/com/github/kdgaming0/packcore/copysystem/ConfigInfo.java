@@ -6,10 +6,16 @@ package com.github.kdgaming0.packcore.copysystem;
 public class ConfigInfo {
     private final String name;
     private final long size;
+    private final ArchiveManifest manifest;
 
     public ConfigInfo(String name, long size) {
+        this(name, size, null);
+    }
+
+    public ConfigInfo(String name, long size, ArchiveManifest manifest) {
         this.name = name;
         this.size = size;
+        this.manifest = manifest;
     }
 
     public String getName() {
@@ -20,11 +26,21 @@ public class ConfigInfo {
         return size;
     }
 
+    /**
+     * The embedded manifest, or null for archives not made by PackCore.
+     */
+    public ArchiveManifest getManifest() {
+        return manifest;
+    }
+
     public String getDisplayName() {
-        // Remove .zip extension for display
+        // Remove .zip or .snapshot extension for display
         if (name.toLowerCase().endsWith(".zip")) {
             return name.substring(0, name.length() - 4);
         }
+        if (SnapshotStore.isSnapshot(name)) {
+            return name.substring(0, name.length() - SnapshotStore.SNAPSHOT_EXTENSION.length());
+        }
         return name;
     }
 
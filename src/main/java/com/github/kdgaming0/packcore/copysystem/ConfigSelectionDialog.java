@@ -1,6 +1,7 @@
 package com.github.kdgaming0.packcore.copysystem;
 
 import com.github.kdgaming0.packcore.config.ModConfig;
+import com.github.kdgaming0.packcore.task.PackCoreTasks;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -9,9 +10,11 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.lang.reflect.InvocationTargetException;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Simplified dialog for config selection that focuses on user experience.
@@ -31,6 +34,14 @@ public class ConfigSelectionDialog extends JFrame {
     private JButton skipButton;
 
     public ConfigSelectionDialog(ConfigExtractionService extractionService) {
+        this(extractionService, extractionService.getOfficialConfigs(), extractionService.getCustomConfigs());
+    }
+
+    /**
+     * Creates the dialog for configs that were already scanned, without listing the folders again.
+     */
+    public ConfigSelectionDialog(ConfigExtractionService extractionService, List<ConfigInfo> officialConfigs,
+                                 List<ConfigInfo> customConfigs) {
         super("PackCore - Configuration Selection");
         this.extractionService = extractionService;
 
@@ -43,16 +54,48 @@ public class ConfigSelectionDialog extends JFrame {
             }
         });
 
-        initializeComponents();
+        initializeComponents(officialConfigs, customConfigs);
         layoutComponents();
         setupEventHandlers();
     }
 
-    private void initializeComponents() {
-        // Create lists for configs
-        List<ConfigInfo> officialConfigs = extractionService.getOfficialConfigs();
-        List<ConfigInfo> customConfigs = extractionService.getCustomConfigs();
+    /**
+     * Creates the dialog on the event dispatch thread, after any {@link #warmUp()} queued before it.
+     */
+    public static ConfigSelectionDialog create(ConfigExtractionService extractionService,
+                                               List<ConfigInfo> officialConfigs, List<ConfigInfo> customConfigs)
+            throws InterruptedException, InvocationTargetException {
+        AtomicReference<ConfigSelectionDialog> dialog = new AtomicReference<>();
+        SwingUtilities.invokeAndWait(() ->
+                dialog.set(new ConfigSelectionDialog(extractionService, officialConfigs, customConfigs)));
+        return dialog.get();
+    }
 
+    /**
+     * Starts the one-time Swing setup the dialog needs (toolkit, look and feel defaults, fonts and the HTML
+     * renderer) in the background without showing anything, so a dialog created shortly after appears
+     * sooner. Loading the toolkit alone takes a while, so even queueing the work happens off the calling
+     * thread, on a short-lived thread of its own rather than behind jobs on the IO pool. Does nothing without
+     * a display.
+     */
+    public static void warmUp() {
+        if (GraphicsEnvironment.isHeadless()) {
+            return;
+        }
+        PackCoreTasks.newThread("PackCore-SwingWarmUp", () -> SwingUtilities.invokeLater(() -> {
+            long start = System.nanoTime();
+            UIManager.getLookAndFeelDefaults();
+            // Measuring a few components like the dialog's loads their fonts, text layout and HTML support
+            new JLabel("<html><h2>PackCore</h2></html>").getPreferredSize();
+            new JButton("📦 PackCore").getPreferredSize();
+            new JTextArea("PackCore").getPreferredSize();
+            new JList<>(new String[]{"PackCore"}).getPreferredSize();
+            LOGGER.debug("Swing warm-up took {} ms", (System.nanoTime() - start) / 1_000_000);
+        })).start();
+    }
+
+    private void initializeComponents(List<ConfigInfo> officialConfigs, List<ConfigInfo> customConfigs) {
+        // Create lists for configs
         officialConfigList = new JList<>(officialConfigs.toArray(new ConfigInfo[0]));
         officialConfigList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         officialConfigList.setCellRenderer(new ConfigInfoRenderer());
@@ -253,32 +296,29 @@ public class ConfigSelectionDialog extends JFrame {
         progressBar.setIndeterminate(true);
         progressBar.setString("Preparing to extract configuration files...");
 
-        // Perform extraction in background thread
-        SwingWorker<Boolean, Void> worker = new SwingWorker<Boolean, Void>() {
-            @Override
-            protected Boolean doInBackground() {
-                return extractionService.extractConfig(selectedConfig.getName(), configType, progress -> {
-                    SwingUtilities.invokeLater(() -> {
-                        progressBar.setIndeterminate(false);
-                        progressBar.setValue(progress);
-                        progressBar.setString("Extracting configuration files... " + progress + "%");
-                    });
-                });
-            }
-
-            @Override
-            protected void done() {
+        // Perform extraction as a background job, the result is handed back to the event dispatch thread
+        try {
+            PackCoreTasks.submitJob("Extract " + selectedConfig.getDisplayName(), extractionService.getMinecraftRoot().toPath(), job -> {
+                boolean success = false;
                 try {
-                    boolean success = get();
-                    handleExtractionComplete(success, selectedConfig.getName());
-                } catch (Exception e) {
+                    success = extractionService.extractConfig(selectedConfig.getName(), configType, progress -> {
+                        job.setProgress(progress);
+                        SwingUtilities.invokeLater(() -> {
+                            progressBar.setIndeterminate(false);
+                            progressBar.setValue(progress);
+                            progressBar.setString("Extracting configuration files... " + progress + "%");
+                        });
+                    });
+                } catch (RuntimeException e) {
                     LOGGER.error("Extraction failed", e);
-                    handleExtractionComplete(false, selectedConfig.getName());
                 }
-            }
-        };
-
-        worker.execute();
+                boolean extracted = success;
+                SwingUtilities.invokeLater(() -> handleExtractionComplete(extracted, selectedConfig.getName()));
+            });
+        } catch (IllegalStateException e) {
+            LOGGER.error("Could not start extraction", e);
+            handleExtractionComplete(false, selectedConfig.getName());
+        }
     }
 
     private void handleExtractionComplete(boolean success, String configName) {
@@ -361,6 +401,18 @@ public class ConfigSelectionDialog extends JFrame {
         customConfigList.setEnabled(enabled);
     }
 
+    /**
+     * Closes the dialog without applying anything and releases {@link #showAndWait()}, for a caller that has
+     * stopped waiting for the user.
+     */
+    public void close() {
+        SwingUtilities.invokeLater(() -> {
+            setVisible(false);
+            dispose();
+        });
+        completionLatch.countDown();
+    }
+
     /**
      * Shows the dialog and blocks until user completes the selection
      */
@@ -389,7 +441,9 @@ public class ConfigSelectionDialog extends JFrame {
             if (value instanceof ConfigInfo) {
                 ConfigInfo config = (ConfigInfo) value;
                 setText(config.getDisplayName());
-                setToolTipText("Size: " + formatFileSize(config.getSize()));
+                ArchiveManifest manifest = config.getManifest();
+                setToolTipText("Size: " + formatFileSize(config.getSize())
+                        + (manifest != null ? " - " + manifest.describe() : ""));
             }
 
             return this;
@@ -0,0 +1,405 @@
+package com.github.kdgaming0.packcore.copysystem;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Applies a set of files to the game folder as one unit.
+ * <p>
+ * Files are first written to a staging folder on the same filesystem, then moved into place with atomic
+ * renames. Durability is handled per folder rather than per file: each folder that received files is
+ * flushed once, and the journal only records a commit after the folders the renames touched are flushed. The files they replace are moved aside instead of deleted, so undoing an
+ * apply is a rename as well. A small JSON journal records how far a transaction got: if the game is killed
+ * while files are being moved, {@link #recover(File)} puts the previous files back on the next start.
+ * The last committed transaction is kept for {@link #rollbackLast(File)}; older ones are deleted.
+ */
+final class ConfigTransaction {
+    private static final Logger LOGGER = LogManager.getLogger(ConfigTransaction.class);
+
+    static final String TRANSACTIONS_FOLDER = "Skyblock Enhanced/.transactions";
+    private static final String JOURNAL_FILE = "journal.json";
+    private static final String STAGING_FOLDER = "staged";
+    private static final String BACKUP_FOLDER = "backup";
+    private static final int JOURNAL_VERSION = 1;
+    private static final Gson gson = new Gson();
+
+    enum State {
+        /** Files are being written to the staging folder; the game folder is untouched. */
+        STAGING,
+        /** Files are being moved into place; an interrupted commit is rolled back on the next start. */
+        COMMITTING,
+        /** All files are in place; the replaced files are kept for a rollback. */
+        COMMITTED
+    }
+
+    private final Path root;
+    private final Path folder;
+    private final Journal journal;
+
+    private ConfigTransaction(Path root, Path folder, Journal journal) {
+        this.root = root;
+        this.folder = folder;
+        this.journal = journal;
+    }
+
+    /**
+     * Starts a transaction that applies files to the given directory.
+     */
+    static ConfigTransaction begin(File targetDirectory) throws IOException {
+        Path root = targetDirectory.toPath().toAbsolutePath().normalize();
+        Path transactions = root.resolve(TRANSACTIONS_FOLDER);
+        Files.createDirectories(transactions);
+
+        Journal journal = new Journal();
+        journal.version = JOURNAL_VERSION;
+        journal.created = System.currentTimeMillis();
+        journal.state = State.STAGING.name();
+
+        Path folder = Files.createTempDirectory(transactions, "apply-" + journal.created + "-");
+        ConfigTransaction transaction = new ConfigTransaction(root, folder, journal);
+        Files.createDirectories(transaction.stagingFolder());
+        transaction.writeJournal();
+        return transaction;
+    }
+
+    /**
+     * Where the new content of an entry is written before the commit.
+     */
+    Path stagedPath(String entryName) {
+        return stagingFolder().resolve(entryName);
+    }
+
+    /**
+     * Flushes a batch of staged files by flushing each folder they were written to once, instead of
+     * flushing every file. Called once per batch after all of its files are written.
+     */
+    static void sync(List<Path> files) {
+        Set<Path> folders = new LinkedHashSet<>();
+        for (Path file : files) {
+            if (file.getParent() != null) {
+                folders.add(file.getParent());
+            }
+        }
+        syncFolders(folders);
+    }
+
+    private static void syncFolders(Collection<Path> folders) {
+        for (Path folder : folders) {
+            try (FileChannel channel = FileChannel.open(folder, StandardOpenOption.READ)) {
+                channel.force(true);
+            } catch (IOException e) {
+                // Some platforms, such as Windows, cannot open a folder; the renames are still atomic there
+                LOGGER.debug("Could not flush folder {}", folder, e);
+            }
+        }
+    }
+
+    /**
+     * Moves the staged files into place and finishes the transaction. If a move fails, every file moved in
+     * by this transaction is put back and the transaction is discarded before the exception is rethrown. A
+     * transaction without entries is simply discarded, so it does not replace the previous rollback point.
+     *
+     * @param entryNames The entries that were staged since the last {@link #commitPart}, relative to the
+     *                   target directory
+     */
+    void commit(List<String> entryNames) throws IOException {
+        moveIn(entryNames);
+        if (journal.entries == null || journal.entries.isEmpty()) {
+            abort();
+            return;
+        }
+
+        journal.state = State.COMMITTED.name();
+        writeJournal();
+        deleteTree(stagingFolder());
+        discardOlderTransactions();
+        LOGGER.info("Applied {} staged files", journal.entries.size());
+    }
+
+    /**
+     * Moves some of the staged files into place now and leaves the transaction open, so a config can be
+     * applied in steps and still be undone as a whole: until {@link #commit} finishes it, a crash or a
+     * {@link #rollback()} puts back the files of every step.
+     */
+    void commitPart(List<String> entryNames) throws IOException {
+        moveIn(entryNames);
+    }
+
+    private void moveIn(List<String> entryNames) throws IOException {
+        if (entryNames.isEmpty()) {
+            return;
+        }
+
+        List<String> entries = journal.entries != null ? journal.entries : new ArrayList<>();
+        entries.addAll(entryNames);
+        journal.entries = entries;
+        journal.state = State.COMMITTING.name();
+        writeJournal();
+
+        Set<Path> createdParents = new HashSet<>();
+        Set<Path> backupParents = new HashSet<>();
+        try {
+            for (String entryName : entryNames) {
+                Path target = root.resolve(entryName);
+                Path parent = target.getParent();
+                if (parent != null && createdParents.add(parent)) {
+                    Files.createDirectories(parent);
+                }
+
+                if (Files.exists(target, LinkOption.NOFOLLOW_LINKS)) {
+                    Path backup = backupFolder().resolve(entryName);
+                    if (backupParents.add(backup.getParent())) {
+                        Files.createDirectories(backup.getParent());
+                    }
+                    Files.move(target, backup, StandardCopyOption.ATOMIC_MOVE);
+                }
+                Files.move(stagedPath(entryName), target, StandardCopyOption.ATOMIC_MOVE);
+            }
+        } catch (IOException e) {
+            LOGGER.error("Applying staged files failed, restoring the previous files", e);
+            restore();
+            deleteTree(folder);
+            throw e;
+        }
+        // The renames must be on disk before the journal can say COMMITTED
+        syncFolders(createdParents);
+        syncFolders(backupParents);
+    }
+
+    /**
+     * Undoes a transaction that was not finished, including files already moved in by {@link #commitPart}.
+     * Does nothing if the transaction was already discarded.
+     */
+    void rollback() throws IOException {
+        if (!Files.exists(folder, LinkOption.NOFOLLOW_LINKS)) {
+            return;
+        }
+        restore();
+        deleteTree(folder);
+    }
+
+    /**
+     * Discards a transaction that was not committed. The game folder was never touched.
+     */
+    void abort() {
+        try {
+            deleteTree(folder);
+        } catch (IOException e) {
+            LOGGER.warn("Could not remove staging folder {}", folder, e);
+        }
+    }
+
+    /**
+     * Finishes transactions left behind by a crash: unfinished staging is discarded and interrupted
+     * commits are rolled back, so the game folder holds either the old or the new config, never a mix.
+     *
+     * @return the number of commits that were rolled back
+     */
+    static int recover(File targetDirectory) {
+        int rolledBack = 0;
+        for (ConfigTransaction transaction : list(targetDirectory)) {
+            if (transaction.getState() == State.COMMITTED) {
+                continue;
+            }
+            try {
+                if (transaction.getState() == State.COMMITTING) {
+                    LOGGER.warn("Rolling back interrupted config apply from {}", transaction.folder.getFileName());
+                    transaction.restore();
+                    rolledBack++;
+                }
+                deleteTree(transaction.folder);
+            } catch (IOException e) {
+                LOGGER.error("Could not recover config transaction {}", transaction.folder.getFileName(), e);
+            }
+        }
+        return rolledBack;
+    }
+
+    /**
+     * Undoes the last committed apply by moving the replaced files back.
+     *
+     * @return false if there is nothing to roll back
+     */
+    static boolean rollbackLast(File targetDirectory) throws IOException {
+        ConfigTransaction last = null;
+        for (ConfigTransaction transaction : list(targetDirectory)) {
+            if (transaction.getState() == State.COMMITTED
+                    && (last == null || transaction.journal.created > last.journal.created)) {
+                last = transaction;
+            }
+        }
+        if (last == null) {
+            return false;
+        }
+
+        last.restore();
+        deleteTree(last.folder);
+        LOGGER.info("Rolled back {} files to their state before the last config apply", last.journal.entries.size());
+        return true;
+    }
+
+    State getState() {
+        try {
+            return State.valueOf(journal.state);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return State.STAGING;
+        }
+    }
+
+    /**
+     * Puts the replaced files back, in reverse order. Works for any point of an interrupted commit: entries
+     * whose staged file is still present were never moved in.
+     */
+    private void restore() throws IOException {
+        List<String> entries = journal.entries != null ? journal.entries : new ArrayList<>();
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            String entryName = entries.get(i);
+            Path target = root.resolve(entryName);
+            Path backup = backupFolder().resolve(entryName);
+            boolean movedIn = !Files.exists(stagedPath(entryName), LinkOption.NOFOLLOW_LINKS);
+
+            if (Files.exists(backup, LinkOption.NOFOLLOW_LINKS)) {
+                if (movedIn || !Files.exists(target, LinkOption.NOFOLLOW_LINKS)) {
+                    Files.move(backup, target, StandardCopyOption.ATOMIC_MOVE);
+                }
+            } else if (movedIn) {
+                // The entry did not exist before the apply
+                Files.deleteIfExists(target);
+            }
+        }
+    }
+
+    private void discardOlderTransactions() {
+        for (ConfigTransaction transaction : list(root.toFile())) {
+            if (!transaction.folder.equals(folder) && transaction.getState() == State.COMMITTED) {
+                try {
+                    deleteTree(transaction.folder);
+                } catch (IOException e) {
+                    LOGGER.warn("Could not remove old config transaction {}", transaction.folder.getFileName(), e);
+                }
+            }
+        }
+    }
+
+    private static List<ConfigTransaction> list(File targetDirectory) {
+        List<ConfigTransaction> transactions = new ArrayList<>();
+        Path root = targetDirectory.toPath().toAbsolutePath().normalize();
+        Path folder = root.resolve(TRANSACTIONS_FOLDER);
+        if (!Files.isDirectory(folder)) {
+            return transactions;
+        }
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder)) {
+            for (Path transactionFolder : stream) {
+                if (!Files.isDirectory(transactionFolder)) {
+                    continue;
+                }
+                Journal journal = readJournal(transactionFolder.resolve(JOURNAL_FILE));
+                if (journal == null) {
+                    // Crashed before the journal was first written, nothing was applied
+                    journal = new Journal();
+                    journal.state = State.STAGING.name();
+                }
+                transactions.add(new ConfigTransaction(root, transactionFolder, journal));
+            }
+        } catch (IOException e) {
+            LOGGER.error("Could not list config transactions", e);
+        }
+        return transactions;
+    }
+
+    private Path stagingFolder() {
+        return folder.resolve(STAGING_FOLDER);
+    }
+
+    private Path backupFolder() {
+        return folder.resolve(BACKUP_FOLDER);
+    }
+
+    /**
+     * Replaces the journal atomically and flushes it, so the recorded state is never half written.
+     */
+    private void writeJournal() throws IOException {
+        Path journalPath = folder.resolve(JOURNAL_FILE);
+        Path temp = folder.resolve(JOURNAL_FILE + ".tmp");
+        byte[] json = gson.toJson(journal).getBytes(StandardCharsets.UTF_8);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(json);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, journalPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static Journal readJournal(Path journalPath) {
+        if (!Files.isRegularFile(journalPath)) {
+            return null;
+        }
+        try (Reader reader = Files.newBufferedReader(journalPath, StandardCharsets.UTF_8)) {
+            Journal journal = gson.fromJson(reader, Journal.class);
+            return journal != null && journal.version <= JOURNAL_VERSION ? journal : null;
+        } catch (IOException | JsonParseException e) {
+            LOGGER.warn("Unreadable config transaction journal: {}", journalPath, e);
+            return null;
+        }
+    }
+
+    private static void deleteTree(Path folder) throws IOException {
+        if (!Files.exists(folder, LinkOption.NOFOLLOW_LINKS)) {
+            return;
+        }
+        Files.walkFileTree(folder, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                if (exc != null) {
+                    throw exc;
+                }
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * On-disk journal, serialized with Gson.
+     */
+    private static final class Journal {
+        int version;
+        long created;
+        String state;
+        List<String> entries;
+    }
+}
@@ -0,0 +1,113 @@
+package com.github.kdgaming0.packcore.copysystem;
+
+import java.util.concurrent.ExecutorService;
+import java.util.function.Predicate;
+
+/**
+ * Options that control how {@link ConfigExtractor} unpacks an archive.
+ */
+public class ExtractionOptions {
+    private int threads;
+    private ExecutorService executor;
+    private boolean skipUnchanged;
+    private boolean staging;
+    private boolean pipelined;
+    private Predicate<String> entryFilter;
+    private ConfigTransaction transaction;
+    private boolean partialCommit;
+
+    private ExtractionOptions(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * Default options: extract on one worker per available core.
+     */
+    public static ExtractionOptions defaults() {
+        return new ExtractionOptions(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Options that extract every entry on the calling thread.
+     */
+    public static ExtractionOptions sequential() {
+        return new ExtractionOptions(1);
+    }
+
+    /**
+     * Sets the number of extraction workers. Values below 1 are treated as 1.
+     */
+    public ExtractionOptions withThreads(int threads) {
+        this.threads = Math.max(1, threads);
+        return this;
+    }
+
+    /**
+     * Runs the workers on an existing executor instead of a pool created for the run. The executor is
+     * not shut down afterwards. In pipelined mode it must be able to run all writers at the same time.
+     */
+    public ExtractionOptions withExecutor(ExecutorService executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * Leaves files alone when their size and CRC already match the entry, so re-applying a config only
+     * touches the files that actually differ. Off by default.
+     */
+    public ExtractionOptions withSkipUnchanged(boolean skipUnchanged) {
+        this.skipUnchanged = skipUnchanged;
+        return this;
+    }
+
+    /**
+     * Writes files to a staging folder first and moves them into place only once all of them are on disk,
+     * keeping the replaced files so the apply can be rolled back. See {@link ConfigTransaction}.
+     */
+    public ExtractionOptions withStaging(boolean staging) {
+        this.staging = staging;
+        return this;
+    }
+
+    /**
+     * Inflates on the calling thread and writes on the worker threads, connected by bounded queues, instead
+     * of giving each worker a share of the entries to both inflate and write.
+     */
+    public ExtractionOptions withPipeline(boolean pipelined) {
+        this.pipelined = pipelined;
+        return this;
+    }
+
+    /**
+     * Only extracts the entries whose name, relative to the target directory, matches the filter. A run
+     * with a filter is a complete apply of its own, with its own transaction when staging, unless it shares
+     * one through {@link #withTransaction}.
+     */
+    public ExtractionOptions withEntryFilter(Predicate<String> entryFilter) {
+        this.entryFilter = entryFilter;
+        return this;
+    }
+
+    /**
+     * Stages into an existing transaction instead of starting one, so several filtered runs apply one
+     * config as a single unit. With partialCommit the run moves its files into place but leaves the
+     * transaction open for the next run; otherwise it finishes the transaction.
+     */
+    ExtractionOptions withTransaction(ConfigTransaction transaction, boolean partialCommit) {
+        this.transaction = transaction;
+        this.partialCommit = partialCommit;
+        return this;
+    }
+
+    public int getThreads() { return threads; }
+    public ExecutorService getExecutor() { return executor; }
+    public boolean isSkipUnchanged() { return skipUnchanged; }
+    public boolean isStaging() { return staging; }
+    public boolean isPipelined() { return pipelined; }
+    /** The entry filter, or null to extract every entry. */
+    public Predicate<String> getEntryFilter() { return entryFilter; }
+    ConfigTransaction getTransaction() { return transaction; }
+    boolean isPartialCommit() { return partialCommit; }
+
+    public boolean isParallel() { return threads > 1; }
+}
@@ -0,0 +1,40 @@
+package com.github.kdgaming0.packcore.copysystem;
+
+/**
+ * Outcome of one extraction: whether it succeeded, how many files were written and how many were left
+ * alone because they already matched the archive, and how long it took.
+ */
+public class ExtractionResult {
+    private final boolean success;
+    private final int writtenEntries;
+    private final int skippedEntries;
+    private final long elapsedMillis;
+
+    ExtractionResult(boolean success, int writtenEntries, int skippedEntries, long elapsedMillis) {
+        this.success = success;
+        this.writtenEntries = writtenEntries;
+        this.skippedEntries = skippedEntries;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    static ExtractionResult failed(long elapsedMillis) {
+        return new ExtractionResult(false, 0, 0, elapsedMillis);
+    }
+
+    public boolean isSuccess() { return success; }
+    public int getWrittenEntries() { return writtenEntries; }
+    /** Files that were not rewritten because their content was already identical. */
+    public int getSkippedEntries() { return skippedEntries; }
+    public long getElapsedMillis() { return elapsedMillis; }
+
+    /**
+     * A one line summary such as "312 files written, 2890 unchanged in 1.2 s".
+     */
+    public String describe() {
+        String seconds = String.format("%.1f s", elapsedMillis / 1000.0);
+        if (!success) {
+            return "failed after " + seconds;
+        }
+        return writtenEntries + " files written, " + skippedEntries + " unchanged in " + seconds;
+    }
+}
@@ -0,0 +1,282 @@
+package com.github.kdgaming0.packcore.copysystem;
+
+import com.github.kdgaming0.packcore.task.PackCoreTasks;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * A point-in-time listing of every regular file below a set of selected paths, taken with a single walk.
+ * <p>
+ * Each file's entry name (relative to the Minecraft root, using '/'), size and modification time are kept in
+ * parallel arrays, so the same snapshot can provide progress totals and feed the archive writer without
+ * touching the file system again. Small folders are walked on the calling thread; large ones are listed in
+ * parallel on PackCore's scan pool.
+ */
+public final class FileSnapshot {
+    private static final Logger LOGGER = LogManager.getLogger(FileSnapshot.class);
+    /** Entries listed on the calling thread before the rest of a folder is walked in parallel. */
+    private static final int SEQUENTIAL_ENTRY_LIMIT = 2000;
+
+    private final Path root;
+    private final Path[] paths;
+    private final String[] names;
+    private final long[] sizes;
+    private final long[] lastModified;
+    private final long totalBytes;
+
+    private FileSnapshot(Path root, Path[] paths, String[] names, long[] sizes, long[] lastModified) {
+        this.root = root;
+        this.paths = paths;
+        this.names = names;
+        this.sizes = sizes;
+        this.lastModified = lastModified;
+
+        long total = 0;
+        for (long size : sizes) {
+            total += size;
+        }
+        this.totalBytes = total;
+    }
+
+    /**
+     * Walks the selected files and folders once and records every regular file found.
+     *
+     * @param root The Minecraft root; entry names are relative to it
+     * @param selectedPaths Files and folders to include
+     */
+    public static FileSnapshot capture(Path root, List<Path> selectedPaths) {
+        FileList files = new FileList();
+
+        for (Path path : selectedPaths) {
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            } catch (IOException e) {
+                LOGGER.warn("Path does not exist: {}", path);
+                continue;
+            }
+
+            String name = root.relativize(path).toString().replace('\\', '/');
+            if (attributes.isDirectory()) {
+                List<FileList> chunks = walk(path, name + "/");
+                for (FileList chunk : chunks) {
+                    files.addAll(chunk);
+                }
+            } else if (attributes.isRegularFile()) {
+                files.add(name, attributes);
+            }
+        }
+
+        return new FileSnapshot(root, null,
+                Arrays.copyOf(files.names, files.count),
+                Arrays.copyOf(files.sizes, files.count),
+                Arrays.copyOf(files.lastModified, files.count));
+    }
+
+    /**
+     * Creates a snapshot whose entries are read from explicit source paths instead of from below a root,
+     * for example blobs of a {@link SnapshotStore}.
+     */
+    static FileSnapshot of(String[] names, Path[] paths, long[] sizes, long[] lastModified) {
+        return new FileSnapshot(null, paths, names, sizes, lastModified);
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * The ZIP entry name of a file, relative to the Minecraft root.
+     */
+    public String getName(int index) {
+        return names[index];
+    }
+
+    public Path getPath(int index) {
+        return paths != null ? paths[index] : root.resolve(names[index]);
+    }
+
+    public long getSize(int index) {
+        return sizes[index];
+    }
+
+    public long getLastModified(int index) {
+        return lastModified[index];
+    }
+
+    /**
+     * Lists a selected directory. Small trees are walked on the calling thread, where forking would cost more
+     * than the listing itself; once {@link #SEQUENTIAL_ENTRY_LIMIT} entries have been seen, the directories not
+     * yet visited are walked on {@link PackCoreTasks#scan()}. Either way the chunks come back in walk order.
+     */
+    private static List<FileList> walk(Path directory, String prefix) {
+        SequentialWalk walk = new SequentialWalk();
+        walk.visit(new DirectoryTask(directory, prefix));
+        if (walk.deferred.isEmpty()) {
+            return walk.chunks;
+        }
+
+        ForkJoinPool pool = PackCoreTasks.scan();
+        for (DirectoryTask task : walk.deferred) {
+            pool.execute(task);
+        }
+        List<FileList> chunks = new ArrayList<>();
+        Iterator<DirectoryTask> tasks = walk.deferred.iterator();
+        for (FileList chunk : walk.chunks) {
+            if (chunk != null) {
+                chunks.add(chunk);
+            } else {
+                chunks.addAll(tasks.next().join());
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * Lists the entries of one directory into {@code files}, and its sub-directories as tasks that are not
+     * started yet.
+     *
+     * @return the number of entries listed
+     */
+    private static int listDirectory(Path directory, String prefix, FileList files,
+                                     List<DirectoryTask> subdirectories) {
+        int entries = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path child : stream) {
+                entries++;
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(child, BasicFileAttributes.class,
+                            LinkOption.NOFOLLOW_LINKS);
+                    if (attributes.isSymbolicLink()) {
+                        // Include linked files, but never follow linked directories
+                        attributes = Files.readAttributes(child, BasicFileAttributes.class);
+                        if (!attributes.isRegularFile()) {
+                            continue;
+                        }
+                    }
+
+                    String name = prefix + child.getFileName().toString();
+                    if (attributes.isDirectory()) {
+                        subdirectories.add(new DirectoryTask(child, name + "/"));
+                    } else if (attributes.isRegularFile()) {
+                        files.add(name, attributes);
+                    }
+                } catch (IOException e) {
+                    LOGGER.warn("Skipping unreadable path: {}", child);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error("Error walking directory: {}", directory, e);
+        }
+        return entries;
+    }
+
+    /**
+     * Depth-first walk on the calling thread. Once the entry budget is spent, each directory still to visit
+     * is deferred and a null placeholder marks where its files belong.
+     */
+    private static final class SequentialWalk {
+        final List<FileList> chunks = new ArrayList<>();
+        final List<DirectoryTask> deferred = new ArrayList<>();
+        int remaining = SEQUENTIAL_ENTRY_LIMIT;
+
+        void visit(DirectoryTask directory) {
+            FileList files = new FileList();
+            List<DirectoryTask> subdirectories = new ArrayList<>();
+            remaining -= listDirectory(directory.directory, directory.prefix, files, subdirectories);
+            chunks.add(files);
+
+            for (DirectoryTask subdirectory : subdirectories) {
+                if (remaining > 0) {
+                    visit(subdirectory);
+                } else {
+                    deferred.add(subdirectory);
+                    chunks.add(null);
+                }
+            }
+        }
+    }
+
+    /**
+     * Lists one directory and forks a sub-task for every sub-directory. Returns the files found as a list of
+     * chunks in walk order, so merging never copies more than once.
+     */
+    private static final class DirectoryTask extends RecursiveTask<List<FileList>> {
+        private final Path directory;
+        private final String prefix;
+
+        DirectoryTask(Path directory, String prefix) {
+            this.directory = directory;
+            this.prefix = prefix;
+        }
+
+        @Override
+        protected List<FileList> compute() {
+            FileList files = new FileList();
+            List<DirectoryTask> subdirectories = new ArrayList<>();
+            listDirectory(directory, prefix, files, subdirectories);
+
+            List<FileList> chunks = new ArrayList<>();
+            chunks.add(files);
+            if (!subdirectories.isEmpty()) {
+                invokeAll(subdirectories);
+                for (DirectoryTask task : subdirectories) {
+                    chunks.addAll(task.join());
+                }
+            }
+            return chunks;
+        }
+    }
+
+    /**
+     * Growable parallel arrays used while walking.
+     */
+    private static final class FileList {
+        String[] names = new String[16];
+        long[] sizes = new long[16];
+        long[] lastModified = new long[16];
+        int count;
+
+        void add(String name, BasicFileAttributes attributes) {
+            ensureCapacity(count + 1);
+            names[count] = name;
+            sizes[count] = attributes.size();
+            lastModified[count] = attributes.lastModifiedTime().toMillis();
+            count++;
+        }
+
+        void addAll(FileList other) {
+            ensureCapacity(count + other.count);
+            System.arraycopy(other.names, 0, names, count, other.count);
+            System.arraycopy(other.sizes, 0, sizes, count, other.count);
+            System.arraycopy(other.lastModified, 0, lastModified, count, other.count);
+            count += other.count;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > names.length) {
+                int newLength = Math.max(capacity, names.length * 2);
+                names = Arrays.copyOf(names, newLength);
+                sizes = Arrays.copyOf(sizes, newLength);
+                lastModified = Arrays.copyOf(lastModified, newLength);
+            }
+        }
+    }
+}
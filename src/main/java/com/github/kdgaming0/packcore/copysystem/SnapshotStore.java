@@ -0,0 +1,557 @@
+package com.github.kdgaming0.packcore.copysystem;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Deduplicating storage for custom config snapshots.
+ * <p>
+ * Every file is stored once as a blob named after the SHA-1 of its content, under
+ * {@code .store/blobs/<first two hex digits>/<rest>}. A snapshot is a small JSON manifest
+ * ({@code <name>.snapshot}) that lists entry names, blob hashes, sizes and modification times. Many
+ * near-identical snapshots therefore cost little more than their manifests.
+ * <p>
+ * Files whose size and modification time match the newest snapshot of the same target are not read at
+ * all; their hash is taken from that manifest. Blobs no longer referenced by any manifest are removed by
+ * {@link #collectGarbage()}.
+ */
+public class SnapshotStore {
+    private static final Logger LOGGER = LogManager.getLogger(SnapshotStore.class);
+
+    public static final String SNAPSHOT_EXTENSION = ".snapshot";
+
+    private static final int MANIFEST_VERSION = 1;
+    private static final int BUFFER_SIZE = 256 * 1024;
+    /**
+     * Temporary blob files younger than this may belong to a snapshot still being written.
+     */
+    private static final long STALE_TEMP_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final Gson gson = new Gson();
+
+    /**
+     * Snapshots take the read lock, garbage collection the write lock, so a blob is never removed while
+     * a snapshot that is about to reference it is being written.
+     */
+    private static final ReadWriteLock STORE_LOCK = new ReentrantReadWriteLock();
+
+    private final File snapshotFolder;
+    private final Path blobFolder;
+
+    /**
+     * @param snapshotFolder The folder that holds the manifests, usually CustomConfigs
+     */
+    public SnapshotStore(File snapshotFolder) {
+        this.snapshotFolder = snapshotFolder;
+        this.blobFolder = snapshotFolder.toPath().resolve(".store").resolve("blobs");
+    }
+
+    public static boolean isSnapshot(String fileName) {
+        return fileName.toLowerCase().endsWith(SNAPSHOT_EXTENSION);
+    }
+
+    /**
+     * Stores every file of a file snapshot and writes the manifest {@code <name>.snapshot}.
+     *
+     * @param name Snapshot name, with or without the extension
+     * @param files The files to store, with entry names relative to the Minecraft root
+     * @param target The preset or folder the files were taken from
+     * @param listener Receives progress updates, may be null
+     * @return the result; reused entries are files whose content was already in the store
+     */
+    public ArchiveResult createSnapshot(String name, FileSnapshot files, String target,
+                                        ZipArchiver.ArchiveProgressListener listener) {
+        return createSnapshot(name, files, target, listener, () -> false);
+    }
+
+    /**
+     * Same as {@link #createSnapshot(String, FileSnapshot, String, ZipArchiver.ArchiveProgressListener)},
+     * but stops before the next file once {@code cancelled} returns true. No manifest is written then; blobs
+     * stored so far are left for {@link #collectGarbage()}.
+     */
+    public ArchiveResult createSnapshot(String name, FileSnapshot files, String target,
+                                        ZipArchiver.ArchiveProgressListener listener, BooleanSupplier cancelled) {
+        long start = System.nanoTime();
+        Path manifestPath = snapshotFile(name).toPath();
+
+        StoreRun run = new StoreRun();
+        STORE_LOCK.readLock().lock();
+        try {
+            Files.createDirectories(blobFolder);
+            Map<String, FileRecord> previous = latestRecords(target);
+
+            Manifest manifest = new Manifest();
+            manifest.version = MANIFEST_VERSION;
+            manifest.target = target;
+            manifest.created = System.currentTimeMillis();
+
+            for (int i = 0; i < files.size(); i++) {
+                if (cancelled.getAsBoolean()) {
+                    LOGGER.info("Snapshot cancelled: {}", manifestPath.getFileName());
+                    return ArchiveResult.failed(manifestPath, elapsedMillis(start));
+                }
+                String entryName = files.getName(i);
+                long size = files.getSize(i);
+                long modified = files.getLastModified(i);
+
+                try {
+                    FileRecord old = previous.get(entryName);
+                    String hash;
+                    if (old != null && old.size == size && old.modified == modified && Files.exists(blobPath(old.hash))) {
+                        hash = old.hash;
+                        run.reusedBlobs++;
+                    } else {
+                        hash = storeBlob(files.getPath(i), run);
+                    }
+
+                    manifest.files.add(new FileRecord(entryName, hash, size, modified));
+                    manifest.totalSize += size;
+                } catch (IOException e) {
+                    LOGGER.error("Error adding file to snapshot: {}", files.getPath(i), e);
+                }
+
+                if (listener != null && files.size() > 0) {
+                    listener.onProgress((int) ((double) (i + 1) / files.size() * 100));
+                }
+            }
+
+            long manifestSize = writeManifest(manifestPath, manifest);
+            LOGGER.info("Snapshot {}: {} files, {} new blobs, {} reused", manifestPath.getFileName(),
+                    manifest.files.size(), run.newBlobs, run.reusedBlobs);
+
+            return new ArchiveResult(true, manifestPath, manifest.files.size(), 0, run.reusedBlobs,
+                    manifest.totalSize, run.bytesWritten + manifestSize, elapsedMillis(start));
+        } catch (IOException e) {
+            LOGGER.error("Failed to create snapshot: {}", name, e);
+            return ArchiveResult.failed(manifestPath, elapsedMillis(start));
+        } finally {
+            run.release();
+            STORE_LOCK.readLock().unlock();
+        }
+    }
+
+    /**
+     * Lists all snapshots in the folder, with the total size of their files and a summary built from the
+     * snapshot manifest.
+     */
+    public List<ConfigInfo> listSnapshots() {
+        File[] manifests = snapshotFolder.listFiles((dir, fileName) -> isSnapshot(fileName));
+        if (manifests == null) {
+            return Collections.emptyList();
+        }
+
+        List<ConfigInfo> snapshots = new ArrayList<>();
+        for (File manifestFile : manifests) {
+            try {
+                snapshots.add(readSnapshotInfo(manifestFile));
+            } catch (IOException e) {
+                LOGGER.warn("Skipping unreadable snapshot: {}", manifestFile.getName());
+            }
+        }
+        return snapshots;
+    }
+
+    /**
+     * The listing entry of one snapshot manifest.
+     */
+    static ConfigInfo readSnapshotInfo(File manifestFile) throws IOException {
+        Manifest manifest = readManifest(manifestFile.toPath());
+        ArchiveManifest summary = new ArchiveManifest(manifest.created, manifest.target, manifest.files.size(),
+                0, manifest.totalSize, Collections.<String, String>emptyMap());
+        return new ConfigInfo(manifestFile.getName(), manifest.totalSize, summary);
+    }
+
+    /**
+     * Restores every file of a snapshot into the target directory, keeping modification times.
+     */
+    public boolean extractSnapshot(String name, File targetDirectory, Consumer<Integer> progressCallback)
+            throws IOException {
+        return extractSnapshot(name, targetDirectory, progressCallback, ExtractionOptions.sequential()).isSuccess();
+    }
+
+    /**
+     * Restores every file of a snapshot into the target directory, keeping modification times. With
+     * skipUnchanged, files whose size and SHA-1 already match the snapshot are left alone; with staging,
+     * the files are applied through a {@link ConfigTransaction}. Restores always run on the calling thread.
+     */
+    public ExtractionResult extractSnapshot(String name, File targetDirectory, Consumer<Integer> progressCallback,
+                                            ExtractionOptions options) throws IOException {
+        long startTime = System.nanoTime();
+        Manifest manifest = readManifest(snapshotFile(name).toPath());
+        List<FileRecord> records = manifest.files;
+        if (options.getEntryFilter() != null) {
+            records = new ArrayList<>();
+            for (FileRecord record : manifest.files) {
+                if (options.getEntryFilter().test(ConfigExtractor.validateEntryName(record.path))) {
+                    records.add(record);
+                }
+            }
+        }
+        StoreRun run = options.isSkipUnchanged() ? new StoreRun() : null;
+        ConfigTransaction transaction = null;
+        if (options.isStaging()) {
+            transaction = options.getTransaction() != null ? options.getTransaction()
+                    : ConfigTransaction.begin(targetDirectory);
+        }
+        List<String> written = new ArrayList<>();
+        List<Path> staged = new ArrayList<>();
+        int processed = 0;
+
+        try {
+            for (FileRecord record : records) {
+                String entryName = ConfigExtractor.validateEntryName(record.path);
+                Path blob = blobPath(record.hash);
+                if (!Files.exists(blob)) {
+                    throw new IOException("Snapshot " + name + " is missing the content of " + entryName);
+                }
+
+                Path targetPath = new File(targetDirectory, entryName).toPath();
+                if (run == null || !isUnchanged(targetPath, record, run)) {
+                    Path outputPath = transaction != null ? transaction.stagedPath(entryName) : targetPath;
+                    Path parentPath = outputPath.getParent();
+                    if (parentPath != null && !Files.exists(parentPath)) {
+                        Files.createDirectories(parentPath);
+                    }
+                    Files.copy(blob, outputPath, StandardCopyOption.REPLACE_EXISTING);
+                    Files.setLastModifiedTime(outputPath, FileTime.fromMillis(record.modified));
+                    written.add(entryName);
+                    if (transaction != null) {
+                        staged.add(outputPath);
+                    }
+                }
+
+                processed++;
+                progressCallback.accept((int) ((double) processed / records.size() * 100));
+            }
+
+            if (transaction != null) {
+                ConfigTransaction.sync(staged);
+                if (options.isPartialCommit()) {
+                    transaction.commitPart(written);
+                } else {
+                    transaction.commit(written);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            if (transaction != null && transaction.getState() == ConfigTransaction.State.STAGING) {
+                transaction.abort();
+            }
+            throw e;
+        } finally {
+            if (run != null) {
+                run.release();
+            }
+        }
+
+        int skipped = processed - written.size();
+
+        ExtractionResult result = new ExtractionResult(true, written.size(), skipped, elapsedMillis(startTime));
+        LOGGER.info("Successfully restored snapshot {}: {}", name, result.describe());
+        return result;
+    }
+
+    /**
+     * Whether a file on disk already has the content of a snapshot record, checking the size before hashing.
+     */
+    private static boolean isUnchanged(Path file, FileRecord record, StoreRun run) throws IOException {
+        if (!Files.isRegularFile(file) || Files.size(file) != record.size) {
+            return false;
+        }
+
+        MessageDigest digest = run.digest;
+        digest.reset();
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(run.buffer)) != -1) {
+                digest.update(run.buffer, 0, read);
+            }
+        }
+        return toHex(digest.digest()).equals(record.hash);
+    }
+
+    /**
+     * Writes a snapshot out as a plain ZIP archive, for sharing.
+     */
+    public ArchiveResult exportToZip(String name, Path outputZip, ZipArchiver.ArchiveProgressListener listener)
+            throws IOException {
+        Manifest manifest = readManifest(snapshotFile(name).toPath());
+
+        int count = manifest.files.size();
+        String[] names = new String[count];
+        Path[] paths = new Path[count];
+        long[] sizes = new long[count];
+        long[] modified = new long[count];
+        for (int i = 0; i < count; i++) {
+            FileRecord record = manifest.files.get(i);
+            names[i] = ConfigExtractor.validateEntryName(record.path);
+            paths[i] = blobPath(record.hash);
+            sizes[i] = record.size;
+            modified[i] = record.modified;
+        }
+
+        ArchiveOptions options = ArchiveOptions.defaults();
+        if (manifest.target != null) {
+            options.withTarget(manifest.target);
+        }
+        return ZipArchiver.createArchive(outputZip, FileSnapshot.of(names, paths, sizes, modified), listener, options);
+    }
+
+    /**
+     * Deletes every blob that no snapshot references any more. Does nothing if a manifest cannot be
+     * read, since its blobs would otherwise be lost.
+     *
+     * @return the number of blobs deleted
+     */
+    public int collectGarbage() {
+        STORE_LOCK.writeLock().lock();
+        try {
+            if (!Files.isDirectory(blobFolder)) {
+                return 0;
+            }
+
+            Set<String> referenced = new HashSet<>();
+            File[] manifests = snapshotFolder.listFiles((dir, fileName) -> isSnapshot(fileName));
+            if (manifests != null) {
+                for (File manifestFile : manifests) {
+                    for (FileRecord record : readManifest(manifestFile.toPath()).files) {
+                        referenced.add(record.hash);
+                    }
+                }
+            }
+
+            int deleted = 0;
+            long freedBytes = 0;
+            long staleBefore = System.currentTimeMillis() - STALE_TEMP_MILLIS;
+            try (DirectoryStream<Path> shards = Files.newDirectoryStream(blobFolder)) {
+                for (Path shard : shards) {
+                    if (!Files.isDirectory(shard)) {
+                        continue;
+                    }
+                    try (DirectoryStream<Path> blobs = Files.newDirectoryStream(shard)) {
+                        for (Path blob : blobs) {
+                            String fileName = blob.getFileName().toString();
+                            boolean unreferenced = fileName.endsWith(".tmp")
+                                    ? Files.getLastModifiedTime(blob).toMillis() < staleBefore
+                                    : !referenced.contains(shard.getFileName() + fileName);
+                            if (unreferenced) {
+                                freedBytes += Files.size(blob);
+                                Files.delete(blob);
+                                deleted++;
+                            }
+                        }
+                    }
+                }
+            }
+
+            LOGGER.info("Snapshot store cleanup removed {} blobs ({} bytes)", deleted, freedBytes);
+            return deleted;
+        } catch (IOException e) {
+            LOGGER.error("Snapshot store cleanup aborted", e);
+            return 0;
+        } finally {
+            STORE_LOCK.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Copies a file into a temporary blob while hashing it, then moves it to its content address. If the
+     * content is already stored the copy is dropped.
+     */
+    private String storeBlob(Path source, StoreRun run) throws IOException {
+        Path temp = Files.createTempFile(blobFolder, "blob", ".tmp");
+        try {
+            MessageDigest digest = run.digest;
+            digest.reset();
+            long copied = 0;
+
+            try (InputStream in = Files.newInputStream(source);
+                 OutputStream out = Files.newOutputStream(temp)) {
+                int read;
+                while ((read = in.read(run.buffer)) != -1) {
+                    digest.update(run.buffer, 0, read);
+                    out.write(run.buffer, 0, read);
+                    copied += read;
+                }
+            }
+
+            String hash = toHex(digest.digest());
+            Path blob = blobPath(hash);
+            if (Files.exists(blob)) {
+                run.reusedBlobs++;
+                return hash;
+            }
+
+            Files.createDirectories(blob.getParent());
+            try {
+                Files.move(temp, blob, StandardCopyOption.ATOMIC_MOVE);
+                run.newBlobs++;
+                run.bytesWritten += copied;
+            } catch (FileAlreadyExistsException e) {
+                // Stored by someone else in the meantime, same content
+                run.reusedBlobs++;
+            }
+            return hash;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Records of the newest snapshot taken from the same target, keyed by entry name.
+     */
+    private Map<String, FileRecord> latestRecords(String target) {
+        File[] manifests = snapshotFolder.listFiles((dir, fileName) -> isSnapshot(fileName));
+        if (manifests == null || target == null) {
+            return Collections.emptyMap();
+        }
+
+        Arrays.sort(manifests, (a, b) -> Long.compare(b.lastModified(), a.lastModified()));
+        for (File manifestFile : manifests) {
+            try {
+                Manifest manifest = readManifest(manifestFile.toPath());
+                if (target.equals(manifest.target)) {
+                    Map<String, FileRecord> records = new HashMap<>(manifest.files.size() * 2);
+                    for (FileRecord record : manifest.files) {
+                        records.put(record.path, record);
+                    }
+                    return records;
+                }
+            } catch (IOException e) {
+                LOGGER.warn("Skipping unreadable snapshot: {}", manifestFile.getName());
+            }
+        }
+        return Collections.emptyMap();
+    }
+
+    private File snapshotFile(String name) {
+        return new File(snapshotFolder, isSnapshot(name) ? name : name + SNAPSHOT_EXTENSION);
+    }
+
+    private Path blobPath(String hash) {
+        return blobFolder.resolve(hash.substring(0, 2)).resolve(hash.substring(2));
+    }
+
+    static Manifest readManifest(Path manifestPath) throws IOException {
+        try (Reader reader = Files.newBufferedReader(manifestPath, StandardCharsets.UTF_8)) {
+            Manifest manifest = gson.fromJson(reader, Manifest.class);
+            if (manifest == null || manifest.files == null) {
+                throw new IOException("Empty snapshot manifest: " + manifestPath.getFileName());
+            }
+            if (manifest.version > MANIFEST_VERSION) {
+                throw new IOException("Snapshot manifest is from a newer version: " + manifestPath.getFileName());
+            }
+            return manifest;
+        } catch (JsonParseException e) {
+            throw new IOException("Invalid snapshot manifest: " + manifestPath.getFileName(), e);
+        }
+    }
+
+    /**
+     * Writes the manifest to a temporary file first, so a crash never leaves a half written snapshot.
+     *
+     * @return the size of the manifest in bytes
+     */
+    private static long writeManifest(Path manifestPath, Manifest manifest) throws IOException {
+        Path temp = manifestPath.resolveSibling(manifestPath.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            gson.toJson(manifest, writer);
+        }
+        Files.move(temp, manifestPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return Files.size(manifestPath);
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] digits = "0123456789abcdef".toCharArray();
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = digits[(bytes[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = digits[bytes[i] & 0xF];
+        }
+        return new String(hex);
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Buffers and counters for one snapshot run.
+     */
+    private static final class StoreRun {
+        final byte[] buffer = BufferPool.SHARED.acquireArray(BUFFER_SIZE);
+        final MessageDigest digest;
+        int newBlobs;
+        int reusedBlobs;
+        long bytesWritten;
+
+        StoreRun() {
+            try {
+                digest = MessageDigest.getInstance("SHA-1");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-1 is not available", e);
+            }
+        }
+
+        void release() {
+            BufferPool.SHARED.release(buffer);
+        }
+    }
+
+    /**
+     * JSON form of a {@code .snapshot} file.
+     */
+    static final class Manifest {
+        int version;
+        String target;
+        long created;
+        long totalSize;
+        List<FileRecord> files = new ArrayList<>();
+    }
+
+    static final class FileRecord {
+        String path;
+        String hash;
+        long size;
+        long modified;
+
+        FileRecord() {
+        }
+
+        FileRecord(String path, String hash, long size, long modified) {
+            this.path = path;
+            this.hash = hash;
+            this.size = size;
+            this.modified = modified;
+        }
+    }
+}
@@ -1,21 +1,63 @@
 package com.github.kdgaming0.packcore.copysystem;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.nio.file.*;
+import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Stream;
+import java.util.function.BooleanSupplier;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 
 /**
  * This class provides functionality to create ZIP archives from selected files and folders
  * in the Minecraft root directory.
+ * <p>
+ * Entries can be compressed on several worker threads at once. Each worker deflates a whole file into its
+ * own buffer and computes the CRC and sizes up front, while the calling thread appends finished entries to
+ * the archive in their original order. Files larger than {@link #IN_MEMORY_LIMIT} are streamed by the
+ * writing thread instead, so memory use stays bounded.
+ * <p>
+ * In incremental mode, files that are unchanged since a previous archive of the same target are copied
+ * from that archive as raw compressed bytes. Files the {@link CompressionPolicy} considers already compressed
+ * are stored without deflating them.
+ * <p>
+ * Copy and output buffers are large and taken from a shared {@link BufferPool}, so repeated runs do not
+ * allocate them again.
  */
 public class ZipArchiver {
+    private static final Logger LOGGER = LogManager.getLogger(ZipArchiver.class);
 
     /**
-     * Creates a ZIP archive containing the specified files and folders.
+     * Archive comment prefix used to remember which target an archive was made from.
+     */
+    public static final String TARGET_COMMENT_PREFIX = "packcore-target:";
+
+    /**
+     * Files up to this size are compressed in memory by the worker threads.
+     */
+    private static final int IN_MEMORY_LIMIT = 1024 * 1024;
+    private static final int WRITE_BUFFER_SIZE = 1024 * 1024;
+    private static final int READ_BUFFER_SIZE = 256 * 1024;
+    /**
+     * Maximum number of compressed entries waiting to be written, per worker thread.
+     */
+    private static final int PENDING_PER_THREAD = 4;
+
+    /**
+     * Creates a ZIP archive containing the specified files and folders using the default options.
      *
      * @param outputZipPath The path where the ZIP file should be created
      * @param selectedPaths List of paths (files/folders) to include in the ZIP
@@ -25,101 +67,572 @@ public class ZipArchiver {
      */
     public static boolean createZipArchive(String zipFileName, String outputZipPath, List<Path> selectedPaths,
                                            File minecraftRoot, ArchiveProgressListener listener) {
+        return createZipArchive(zipFileName, outputZipPath, selectedPaths, minecraftRoot, listener,
+                ArchiveOptions.defaults());
+    }
+
+    /**
+     * Creates a ZIP archive containing the specified files and folders.
+     *
+     * @param outputZipPath The path where the ZIP file should be created
+     * @param selectedPaths List of paths (files/folders) to include in the ZIP
+     * @param minecraftRoot The root directory of the Minecraft instance
+     * @param listener The listener to receive progress updates
+     * @param options Controls threading and incremental mode
+     * @return true if archive creation was successful, false otherwise
+     */
+    public static boolean createZipArchive(String zipFileName, String outputZipPath, List<Path> selectedPaths,
+                                           File minecraftRoot, ArchiveProgressListener listener,
+                                           ArchiveOptions options) {
+        // Walk all selected paths once, this also gives us the total for progress tracking
+        FileSnapshot snapshot = FileSnapshot.capture(minecraftRoot.toPath(), selectedPaths);
+        return createZipArchive(zipFileName, outputZipPath, snapshot, listener, options);
+    }
+
+    /**
+     * Creates a ZIP archive containing every file of a snapshot, without walking the file system again.
+     *
+     * @param outputZipPath The path where the ZIP file should be created
+     * @param snapshot The files to include, with entry names relative to the Minecraft root
+     * @param listener The listener to receive progress updates
+     * @param options Controls threading and incremental mode
+     * @return true if archive creation was successful, false otherwise
+     */
+    public static boolean createZipArchive(String zipFileName, String outputZipPath, FileSnapshot snapshot,
+                                           ArchiveProgressListener listener, ArchiveOptions options) {
         // Combine the output path and zip file name
-        String fullZipPath = Paths.get(outputZipPath, zipFileName).toString();
+        return createArchive(Paths.get(outputZipPath, zipFileName), snapshot, listener, options).isSuccess();
+    }
 
-        try (FileOutputStream fos = new FileOutputStream(fullZipPath);
-             ZipOutputStream zos = new ZipOutputStream(fos)) {
+    /**
+     * Creates a ZIP archive containing every file of a snapshot and reports what was written.
+     * A partially written archive is deleted if the run fails.
+     *
+     * @param outputZip The ZIP file to create
+     * @param snapshot The files to include, with entry names relative to the Minecraft root
+     * @param listener The listener to receive progress updates
+     * @param options Controls threading, compression, buffers and incremental mode
+     * @return the result, with entry and byte counts and the elapsed time
+     */
+    public static ArchiveResult createArchive(Path outputZip, FileSnapshot snapshot,
+                                              ArchiveProgressListener listener, ArchiveOptions options) {
+        long start = System.nanoTime();
+        ByteBuffer outputBuffer = BufferPool.SHARED.acquireBuffer(WRITE_BUFFER_SIZE, options.isDirectBuffers());
+        WriteContext context = null;
 
-            // Count total files for progress tracking
-            int totalFiles = countFiles(selectedPaths);
-            AtomicInteger processedFiles = new AtomicInteger();
+        try {
+            try (ZipCentralDirectory base = openBaseArchive(options.getBaseArchive(), outputZip);
+                 ZipWriter writer = new ZipWriter(outputZip, outputBuffer)) {
+                context = new WriteContext(writer, base, options);
+                if (options.isParallel()) {
+                    writeParallel(snapshot, context, listener, options);
+                } else {
+                    writeSequential(snapshot, context, listener);
+                }
+
+                int entryCount = writer.getEntryCount();
+                writeManifestAndFinish(writer, context, entryCount, options);
 
-            // Process each selected path
-            for (Path path : selectedPaths) {
-                if (!path.toFile().exists()) {
-                    System.err.println("Path does not exist: " + path);
-                    continue;
+                if (base != null) {
+                    LOGGER.info("Incremental archive: reused {} of {} entries from {}", context.reusedEntries,
+                            entryCount, options.getBaseArchive().getFileName());
                 }
+                return new ArchiveResult(true, outputZip, entryCount, context.storedEntries,
+                        context.reusedEntries, context.bytesIn, writer.getPosition(), elapsedMillis(start));
+            }
+        } catch (ArchiveCancelledException e) {
+            LOGGER.info("Archive creation cancelled: {}", outputZip.getFileName());
+            deleteQuietly(outputZip);
+            return ArchiveResult.failed(outputZip, elapsedMillis(start));
+        } catch (IOException e) {
+            LOGGER.error("Error creating ZIP archive {}", outputZip, e);
+            deleteQuietly(outputZip);
+            return ArchiveResult.failed(outputZip, elapsedMillis(start));
+        } finally {
+            if (context != null) {
+                context.release();
+            }
+            BufferPool.SHARED.release(outputBuffer);
+        }
+    }
 
-                // Get the relative path from Minecraft root
-                Path relativePath = minecraftRoot.toPath().relativize(path);
-
-                if (Files.isDirectory(path)) {
-                    // Walk through directory and add all files
-                    try (Stream<Path> walker = Files.walk(path)) {
-                        walker.forEach(filePath -> {
-                            if (Files.isRegularFile(filePath)) {
-                                try {
-                                    addFileToZip(filePath, minecraftRoot.toPath().relativize(filePath), zos);
-                                    updateProgress(processedFiles.incrementAndGet(), totalFiles, listener);
-                                } catch (IOException e) {
-                                    System.err.println("Error adding file to ZIP: " + filePath);
-                                    e.printStackTrace();
-                                }
-                            }
-                        });
-                    }
-                } else {
-                    // Add single file
-                    addFileToZip(path, relativePath, zos);
-                    updateProgress(processedFiles.incrementAndGet(), totalFiles, listener);
+    /**
+     * Appends the {@link ArchiveManifest} as the last, uncompressed entry and writes the central directory,
+     * with a comment pointing at the manifest bytes.
+     */
+    private static void writeManifestAndFinish(ZipWriter writer, WriteContext context, int entryCount,
+                                               ArchiveOptions options) throws IOException {
+        ArchiveManifest manifest = new ArchiveManifest(System.currentTimeMillis(), options.getTarget(), entryCount,
+                context.storedEntries, context.bytesIn, options.getProperties());
+        byte[] data = manifest.toBytes();
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+
+        ZipWriter.EntryRecord record = writer.beginEntry(ArchiveManifest.ENTRY_NAME, ZipEntry.STORED,
+                System.currentTimeMillis());
+        writer.write(data, 0, data.length);
+        writer.endEntry(crc.getValue(), data.length);
+
+        writer.finish(ArchiveManifest.buildComment(options.getTarget(), record.dataOffset, data.length,
+                crc.getValue()));
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            LOGGER.warn("Could not delete incomplete archive {}", file, e);
+        }
+    }
+
+    /**
+     * Finds the newest archive in a folder that was created from the given target.
+     *
+     * @return the archive path, or null if there is none
+     */
+    public static Path findLatestArchive(Path folder, String target) {
+        File[] candidates = folder.toFile().listFiles((dir, name) -> name.toLowerCase().endsWith(".zip"));
+        if (candidates == null) {
+            return null;
+        }
+
+        // Newest first, then stop at the first archive whose comment names the same target
+        Arrays.sort(candidates, (a, b) -> Long.compare(b.lastModified(), a.lastModified()));
+        for (File candidate : candidates) {
+            try {
+                String comment = ZipCentralDirectory.readComment(candidate.toPath());
+                if (target.equals(ArchiveManifest.targetFromComment(comment))) {
+                    return candidate.toPath();
                 }
+            } catch (IOException e) {
+                LOGGER.warn("Skipping unreadable archive {}", candidate.getName(), e);
             }
+        }
+        return null;
+    }
 
-            return true;
+    private static ZipCentralDirectory openBaseArchive(Path baseArchive, Path outputPath) {
+        if (baseArchive == null) {
+            return null;
+        }
+        try {
+            if (Files.exists(outputPath) && Files.isSameFile(baseArchive, outputPath)) {
+                LOGGER.warn("Base archive is the output file, creating a full archive instead");
+                return null;
+            }
+            return ZipCentralDirectory.open(baseArchive);
         } catch (IOException e) {
-            System.err.println("Error creating ZIP archive: " + e.getMessage());
-            e.printStackTrace();
-            return false;
+            LOGGER.warn("Could not read base archive {}, creating a full archive instead", baseArchive, e);
+            return null;
+        }
+    }
+
+    /**
+     * Compresses and writes every file on the calling thread.
+     */
+    private static void writeSequential(FileSnapshot snapshot, WriteContext context,
+                                        ArchiveProgressListener listener) throws IOException {
+        for (int i = 0; i < snapshot.size(); i++) {
+            checkCancelled(context);
+            try {
+                writePreparedEntry(prepareEntry(snapshot, i, context.base, context.policy, null), context);
+            } catch (IOException e) {
+                context.writer.abortEntry();
+                LOGGER.error("Error adding file to ZIP: {}", snapshot.getPath(i), e);
+            }
+            updateProgress(i + 1, snapshot.size(), listener);
+        }
+    }
+
+    /**
+     * Compresses small files on a pool of worker threads and appends the results in order. Uses the
+     * executor from the options when one is set, otherwise a pool private to this run.
+     */
+    private static void writeParallel(FileSnapshot snapshot, WriteContext context,
+                                      ArchiveProgressListener listener, ArchiveOptions options) throws IOException {
+        int threads = options.getThreads();
+        ExecutorService sharedPool = options.getExecutor();
+        ExecutorService pool = sharedPool != null ? sharedPool : createPrivatePool(threads);
+        DeflaterPool deflaters = new DeflaterPool();
+        Queue<Future<PreparedEntry>> pending = new ArrayDeque<>();
+        int maxPending = threads * PENDING_PER_THREAD;
+        int processedFiles = 0;
+
+        try {
+            for (int i = 0; i < snapshot.size(); i++) {
+                checkCancelled(context);
+                int index = i;
+                pending.add(pool.submit(() -> prepareEntry(snapshot, index, context.base, context.policy, deflaters)));
+
+                // Write finished entries as soon as they are at the head of the queue
+                while (!pending.isEmpty() && (pending.size() >= maxPending || pending.peek().isDone())) {
+                    writeFutureEntry(pending.poll(), context);
+                    updateProgress(++processedFiles, snapshot.size(), listener);
+                }
+            }
+
+            while (!pending.isEmpty()) {
+                checkCancelled(context);
+                writeFutureEntry(pending.poll(), context);
+                updateProgress(++processedFiles, snapshot.size(), listener);
+            }
+        } finally {
+            if (sharedPool != null) {
+                // Tasks that have not started yet are dropped, running ones return their deflater to a closed pool
+                for (Future<PreparedEntry> future : pending) {
+                    future.cancel(false);
+                }
+            } else {
+                pool.shutdownNow();
+                awaitQuietly(pool);
+            }
+            deflaters.close();
+        }
+    }
+
+    private static ExecutorService createPrivatePool(int threads) {
+        AtomicInteger threadCounter = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "PackCore-Zip-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static void checkCancelled(WriteContext context) throws ArchiveCancelledException {
+        if (context.cancelled.getAsBoolean()) {
+            throw new ArchiveCancelledException();
+        }
+    }
+
+    private static void awaitQuietly(ExecutorService pool) {
+        try {
+            pool.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
     /**
-     * Adds a single file to the ZIP archive.
+     * Waits for a prepared entry from a worker thread and appends it to the archive.
      */
-    private static void addFileToZip(Path filePath, Path relativePath, ZipOutputStream zos)
+    private static void writeFutureEntry(Future<PreparedEntry> future, WriteContext context) throws IOException {
+        PreparedEntry entry;
+        try {
+            entry = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for compression");
+        } catch (ExecutionException e) {
+            LOGGER.error("Error adding file to ZIP", e.getCause());
+            return;
+        }
+
+        try {
+            writePreparedEntry(entry, context);
+        } catch (IOException e) {
+            context.writer.abortEntry();
+            LOGGER.error("Error adding file to ZIP: {}", entry.source, e);
+        }
+    }
+
+    /**
+     * Appends a prepared entry: reused entries are copied raw from the base archive, compressed entries
+     * are written as-is and everything else is streamed and deflated here.
+     */
+    private static void writePreparedEntry(PreparedEntry entry, WriteContext context) throws IOException {
+        if (entry.reused != null) {
+            context.writer.copyRawEntry(context.base, entry.reused, entry.name, entry.mtime);
+            context.reusedEntries++;
+            context.bytesIn += entry.reused.size;
+        } else if (entry.data != null) {
+            context.writer.writeEntry(entry.name, entry.method, entry.crc, entry.size, entry.mtime,
+                    entry.data, 0, entry.length);
+            if (entry.method == ZipEntry.STORED) {
+                context.storedEntries++;
+            }
+            context.bytesIn += entry.size;
+        } else {
+            streamFileToZip(entry.source, entry.name, entry.mtime, context);
+        }
+    }
+
+    /**
+     * Decides how a file will be written. Reuses the base archive's entry when the file is unchanged and,
+     * when a deflater pool is given, stores or compresses small files in memory. Runs on a worker thread in
+     * parallel mode.
+     */
+    private static PreparedEntry prepareEntry(FileSnapshot snapshot, int index, ZipCentralDirectory base,
+                                              CompressionPolicy policy, DeflaterPool deflaters)
             throws IOException {
-        ZipEntry zipEntry = new ZipEntry(relativePath.toString().replace("\\", "/"));
-        zos.putNextEntry(zipEntry);
+        Path filePath = snapshot.getPath(index);
+        String name = snapshot.getName(index);
+        long size = snapshot.getSize(index);
+        long mtime = snapshot.getLastModified(index);
+
+        if (base != null) {
+            ZipCentralDirectory.Entry previous = base.getEntry(name);
+            if (isUnchanged(filePath, size, previous)) {
+                return PreparedEntry.reused(filePath, name, mtime, previous);
+            }
+        }
+
+        if (deflaters == null || size > IN_MEMORY_LIMIT) {
+            return PreparedEntry.streamed(filePath, name, mtime);
+        }
+
+        byte[] input = Files.readAllBytes(filePath);
+
+        CRC32 crc = new CRC32();
+        crc.update(input, 0, input.length);
+
+        Deflater deflater = deflaters.acquire();
+
+        try {
+            if (policy.selectMethod(name, input, input.length, deflater) == ZipEntry.STORED) {
+                return PreparedEntry.compressed(filePath, name, mtime, ZipEntry.STORED, crc.getValue(),
+                        input.length, input, input.length);
+            }
 
-        Files.copy(filePath, zos);
-        zos.closeEntry();
+            deflater.reset();
+            deflater.setInput(input);
+            deflater.finish();
+
+            byte[] output = new byte[Math.max(64, input.length / 2)];
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == output.length) {
+                    output = Arrays.copyOf(output, output.length * 2);
+                }
+                length += deflater.deflate(output, length, output.length - length);
+            }
+
+            return PreparedEntry.compressed(filePath, name, mtime, ZipEntry.DEFLATED, crc.getValue(),
+                    input.length, output, length);
+        } finally {
+            deflaters.release(deflater);
+        }
     }
 
     /**
-     * Counts total number of files to be processed for progress tracking.
+     * Checks whether a file still matches an entry of the base archive: the size must match and so must
+     * the CRC32 of the current content. A matching modification time is not enough on its own, since ZIP
+     * stores it in local time at two second resolution, so an edit that keeps the size can share it.
      */
-    private static int countFiles(List<Path> paths) {
-        int count = 0;
-        for (Path path : paths) {
-            if (Files.isDirectory(path)) {
-                try (Stream<Path> walker = Files.walk(path)) {
-                    count += walker.filter(Files::isRegularFile).count();
-                } catch (IOException e) {
-                    System.err.println("Error counting files in directory: " + path);
+    private static boolean isUnchanged(Path filePath, long size, ZipCentralDirectory.Entry previous)
+            throws IOException {
+        if (previous == null || previous.isEncrypted() || previous.size != size
+                || (previous.method != ZipEntry.DEFLATED && previous.method != ZipEntry.STORED)) {
+            return false;
+        }
+
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[READ_BUFFER_SIZE];
+        try (InputStream in = Files.newInputStream(filePath)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                crc.update(buffer, 0, read);
+            }
+        }
+        return crc.getValue() == previous.crc;
+    }
+
+    /**
+     * Streams a file into the archive on the calling thread. The first block read decides whether the
+     * entry is stored or deflated; either way the CRC is computed in the same pass.
+     */
+    private static void streamFileToZip(Path filePath, String name, long mtime, WriteContext context)
+            throws IOException {
+        ZipWriter writer = context.writer;
+        Deflater deflater = context.deflater;
+        byte[] readBuffer = context.readBuffer;
+        byte[] deflateBuffer = context.deflateBuffer;
+
+        // Open the file before starting the entry so unreadable files are skipped cleanly
+        try (InputStream in = Files.newInputStream(filePath)) {
+            CRC32 crc = new CRC32();
+            long size = 0;
+
+            int read = readBlock(in, readBuffer);
+            int method = context.policy.selectMethod(name, readBuffer, Math.max(read, 0), deflater);
+            writer.beginEntry(name, method, mtime);
+
+            if (method == ZipEntry.STORED) {
+                for (; read != -1; read = in.read(readBuffer)) {
+                    crc.update(readBuffer, 0, read);
+                    size += read;
+                    writer.write(readBuffer, 0, read);
+                }
+                writer.endEntry(crc.getValue(), size);
+                context.storedEntries++;
+                context.bytesIn += size;
+                return;
+            }
+
+            deflater.reset();
+            for (; read != -1; read = in.read(readBuffer)) {
+                crc.update(readBuffer, 0, read);
+                size += read;
+                deflater.setInput(readBuffer, 0, read);
+                while (!deflater.needsInput()) {
+                    int length = deflater.deflate(deflateBuffer);
+                    writer.write(deflateBuffer, 0, length);
                 }
-            } else {
-                count++;
             }
+
+            deflater.finish();
+            while (!deflater.finished()) {
+                int length = deflater.deflate(deflateBuffer);
+                writer.write(deflateBuffer, 0, length);
+            }
+
+            writer.endEntry(crc.getValue(), size);
+            context.bytesIn += size;
+        }
+    }
+
+    /**
+     * Fills the buffer as far as possible, so the storage decision sees a full sample.
+     *
+     * @return the number of bytes read, or -1 if the stream was already at its end
+     */
+    private static int readBlock(InputStream in, byte[] buffer) throws IOException {
+        int total = 0;
+        int read;
+        while (total < buffer.length && (read = in.read(buffer, total, buffer.length - total)) != -1) {
+            total += read;
         }
-        return count;
+        return total == 0 ? -1 : total;
     }
 
     /**
      * Updates the progress through the listener.
      */
     private static void updateProgress(int processed, int total, ArchiveProgressListener listener) {
-        if (listener != null) {
+        if (listener != null && total > 0) {
             int progress = (int)(((double)processed / total) * 100);
             listener.onProgress(progress);
         }
     }
 
+    /**
+     * State owned by the writing thread for one archive run.
+     */
+    private static final class WriteContext {
+        final ZipWriter writer;
+        final ZipCentralDirectory base;
+        final CompressionPolicy policy;
+        final BooleanSupplier cancelled;
+        final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        final byte[] readBuffer = BufferPool.SHARED.acquireArray(READ_BUFFER_SIZE);
+        final byte[] deflateBuffer = BufferPool.SHARED.acquireArray(READ_BUFFER_SIZE);
+        int reusedEntries;
+        int storedEntries;
+        long bytesIn;
+
+        WriteContext(ZipWriter writer, ZipCentralDirectory base, ArchiveOptions options) {
+            this.writer = writer;
+            this.base = base;
+            this.policy = options.getCompressionPolicy();
+            this.cancelled = options.getCancellation();
+        }
+
+        void release() {
+            deflater.end();
+            BufferPool.SHARED.release(readBuffer);
+            BufferPool.SHARED.release(deflateBuffer);
+        }
+    }
+
+    /**
+     * Deflaters shared by the worker threads of one run. A deflater released after the pool was closed
+     * (by a task that was still running when the run ended) is ended straight away.
+     */
+    private static final class DeflaterPool {
+        private final Queue<Deflater> idle = new ArrayDeque<>();
+        private boolean closed;
+
+        synchronized Deflater acquire() {
+            Deflater deflater = idle.poll();
+            return deflater != null ? deflater : new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        }
+
+        synchronized void release(Deflater deflater) {
+            if (closed) {
+                deflater.end();
+            } else {
+                idle.add(deflater);
+            }
+        }
+
+        synchronized void close() {
+            closed = true;
+            for (Deflater deflater : idle) {
+                deflater.end();
+            }
+            idle.clear();
+        }
+    }
+
+    /**
+     * Thrown between entries when the run was cancelled through {@link ArchiveOptions#withCancellation}.
+     */
+    private static final class ArchiveCancelledException extends InterruptedIOException {
+        ArchiveCancelledException() {
+            super("Archive creation cancelled");
+        }
+    }
+
+    /**
+     * A file ready to be written: either reused from the base archive, stored or deflated in memory by a
+     * worker thread, or marked to be streamed by the writer.
+     */
+    private static final class PreparedEntry {
+        final Path source;
+        final String name;
+        final long mtime;
+        final ZipCentralDirectory.Entry reused;
+        final int method;
+        final long crc;
+        final long size;
+        final byte[] data;
+        final int length;
+
+        private PreparedEntry(Path source, String name, long mtime, ZipCentralDirectory.Entry reused,
+                              int method, long crc, long size, byte[] data, int length) {
+            this.source = source;
+            this.name = name;
+            this.mtime = mtime;
+            this.reused = reused;
+            this.method = method;
+            this.crc = crc;
+            this.size = size;
+            this.data = data;
+            this.length = length;
+        }
+
+        static PreparedEntry reused(Path source, String name, long mtime, ZipCentralDirectory.Entry previous) {
+            return new PreparedEntry(source, name, mtime, previous, previous.method, 0, 0, null, 0);
+        }
+
+        static PreparedEntry compressed(Path source, String name, long mtime, int method, long crc, long size,
+                                        byte[] data, int length) {
+            return new PreparedEntry(source, name, mtime, null, method, crc, size, data, length);
+        }
+
+        static PreparedEntry streamed(Path source, String name, long mtime) {
+            return new PreparedEntry(source, name, mtime, null, ZipEntry.DEFLATED, 0, 0, null, 0);
+        }
+    }
+
     /**
      * Interface for progress updates during archive creation.
      */
     public interface ArchiveProgressListener {
         void onProgress(int percentComplete);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,268 @@
+package com.github.kdgaming0.packcore.copysystem;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipException;
+
+/**
+ * Reads the central directory of a ZIP file directly, without inflating anything. Gives access to the
+ * raw position of each entry's data so compressed bytes can be copied or transferred as-is.
+ */
+final class ZipCentralDirectory implements Closeable {
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int END_SIGNATURE = 0x06054b50;
+    private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int END_RECORD_SIZE = 22;
+    private static final int MAX_COMMENT_LENGTH = 0xFFFF;
+    /** Most archives have a short comment, so the end record is first looked for in this much of the tail. */
+    private static final int SHORT_TAIL_LENGTH = 1024;
+    private static final long ZIP32_MAX = 0xFFFFFFFFL;
+
+    private final FileChannel channel;
+    private final List<Entry> entries;
+    private final Map<String, Entry> entriesByName;
+    private final String comment;
+
+    private ZipCentralDirectory(FileChannel channel, List<Entry> entries, String comment) {
+        this.channel = channel;
+        this.entries = Collections.unmodifiableList(entries);
+        this.entriesByName = new HashMap<>(entries.size() * 2);
+        for (Entry entry : entries) {
+            entriesByName.put(entry.name, entry);
+        }
+        this.comment = comment;
+    }
+
+    /**
+     * Opens a ZIP file and reads its central directory. The file stays open until {@link #close()}.
+     */
+    static ZipCentralDirectory open(Path zipFile) throws IOException {
+        FileChannel channel = FileChannel.open(zipFile, StandardOpenOption.READ);
+        try {
+            EndRecord end = readEndRecord(channel);
+            List<Entry> entries = readEntries(channel, end);
+            return new ZipCentralDirectory(channel, entries, end.comment);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads only the archive comment from the end record of a ZIP file.
+     */
+    static String readComment(Path zipFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(zipFile, StandardOpenOption.READ)) {
+            return readComment(channel);
+        }
+    }
+
+    static String readComment(FileChannel channel) throws IOException {
+        return readEndRecord(channel).comment;
+    }
+
+    List<Entry> getEntries() {
+        return entries;
+    }
+
+    Entry getEntry(String name) {
+        return entriesByName.get(name);
+    }
+
+    String getComment() {
+        return comment;
+    }
+
+    FileChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     * Finds where an entry's compressed data starts by reading its local file header.
+     */
+    long dataOffset(Entry entry) throws IOException {
+        ByteBuffer header = readFully(channel, entry.localHeaderOffset, 30);
+        if (header.getInt(0) != LOCAL_HEADER_SIGNATURE) {
+            throw new ZipException("Invalid local header for entry: " + entry.name);
+        }
+        int nameLength = header.getShort(26) & 0xFFFF;
+        int extraLength = header.getShort(28) & 0xFFFF;
+        return entry.localHeaderOffset + 30 + nameLength + extraLength;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static EndRecord readEndRecord(FileChannel channel) throws IOException {
+        long fileSize = channel.size();
+        if (fileSize < END_RECORD_SIZE) {
+            throw new ZipException("File too small to be a ZIP archive");
+        }
+
+        EndRecord end = findEndRecord(channel, fileSize, (int) Math.min(fileSize, SHORT_TAIL_LENGTH));
+        if (end == null && fileSize > SHORT_TAIL_LENGTH) {
+            end = findEndRecord(channel, fileSize, (int) Math.min(fileSize, END_RECORD_SIZE + MAX_COMMENT_LENGTH));
+        }
+        if (end == null) {
+            throw new ZipException("End of central directory not found");
+        }
+        return end;
+    }
+
+    private static EndRecord findEndRecord(FileChannel channel, long fileSize, int tailLength) throws IOException {
+        long tailStart = fileSize - tailLength;
+        ByteBuffer tail = readFully(channel, tailStart, tailLength);
+
+        for (int i = tailLength - END_RECORD_SIZE; i >= 0; i--) {
+            if (tail.getInt(i) != END_SIGNATURE) {
+                continue;
+            }
+            int commentLength = tail.getShort(i + 20) & 0xFFFF;
+            if (i + END_RECORD_SIZE + commentLength != tailLength) {
+                continue;
+            }
+
+            EndRecord end = new EndRecord();
+            end.entryCount = tail.getShort(i + 10) & 0xFFFF;
+            end.centralSize = tail.getInt(i + 12) & ZIP32_MAX;
+            end.centralOffset = tail.getInt(i + 16) & ZIP32_MAX;
+            byte[] commentBytes = new byte[commentLength];
+            tail.position(i + END_RECORD_SIZE);
+            tail.get(commentBytes);
+            end.comment = new String(commentBytes, StandardCharsets.UTF_8);
+
+            long locatorPosition = tailStart + i - 20;
+            if (locatorPosition >= 0) {
+                ByteBuffer locator = readFully(channel, locatorPosition, 20);
+                if (locator.getInt(0) == ZIP64_LOCATOR_SIGNATURE) {
+                    ByteBuffer zip64End = readFully(channel, locator.getLong(8), 56);
+                    if (zip64End.getInt(0) != ZIP64_END_SIGNATURE) {
+                        throw new ZipException("Invalid ZIP64 end record");
+                    }
+                    end.entryCount = zip64End.getLong(32);
+                    end.centralSize = zip64End.getLong(40);
+                    end.centralOffset = zip64End.getLong(48);
+                }
+            }
+            return end;
+        }
+
+        return null;
+    }
+
+    private static List<Entry> readEntries(FileChannel channel, EndRecord end) throws IOException {
+        if (end.centralSize > Integer.MAX_VALUE) {
+            throw new ZipException("Central directory too large");
+        }
+
+        ByteBuffer central = readFully(channel, end.centralOffset, (int) end.centralSize);
+        List<Entry> entries = new ArrayList<>((int) Math.min(end.entryCount, 1 << 16));
+
+        int position = 0;
+        while (position + 46 <= central.limit() && central.getInt(position) == CENTRAL_HEADER_SIGNATURE) {
+            int flags = central.getShort(position + 8) & 0xFFFF;
+            int method = central.getShort(position + 10) & 0xFFFF;
+            long dosTime = central.getInt(position + 12) & ZIP32_MAX;
+            long crc = central.getInt(position + 16) & ZIP32_MAX;
+            long compressedSize = central.getInt(position + 20) & ZIP32_MAX;
+            long size = central.getInt(position + 24) & ZIP32_MAX;
+            int nameLength = central.getShort(position + 28) & 0xFFFF;
+            int extraLength = central.getShort(position + 30) & 0xFFFF;
+            int commentLength = central.getShort(position + 32) & 0xFFFF;
+            long localHeaderOffset = central.getInt(position + 42) & ZIP32_MAX;
+
+            byte[] nameBytes = new byte[nameLength];
+            central.position(position + 46);
+            central.get(nameBytes);
+            String name = new String(nameBytes, StandardCharsets.UTF_8);
+
+            // ZIP64 extra field holds the real values of any field set to 0xFFFFFFFF
+            int extraPosition = position + 46 + nameLength;
+            int extraEnd = extraPosition + extraLength;
+            while (extraPosition + 4 <= extraEnd) {
+                int id = central.getShort(extraPosition) & 0xFFFF;
+                int length = central.getShort(extraPosition + 2) & 0xFFFF;
+                if (id == 0x0001) {
+                    int field = extraPosition + 4;
+                    if (size == ZIP32_MAX) { size = central.getLong(field); field += 8; }
+                    if (compressedSize == ZIP32_MAX) { compressedSize = central.getLong(field); field += 8; }
+                    if (localHeaderOffset == ZIP32_MAX) { localHeaderOffset = central.getLong(field); }
+                    break;
+                }
+                extraPosition += 4 + length;
+            }
+
+            entries.add(new Entry(name, flags, method, dosTime, crc, compressedSize, size, localHeaderOffset));
+            position += 46 + nameLength + extraLength + commentLength;
+        }
+
+        return entries;
+    }
+
+    static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new ZipException("Unexpected end of ZIP file");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static final class EndRecord {
+        long entryCount;
+        long centralSize;
+        long centralOffset;
+        String comment;
+    }
+
+    /**
+     * A single central directory record.
+     */
+    static final class Entry {
+        final String name;
+        final int flags;
+        final int method;
+        final long dosTime;
+        final long crc;
+        final long compressedSize;
+        final long size;
+        final long localHeaderOffset;
+
+        Entry(String name, int flags, int method, long dosTime, long crc, long compressedSize, long size,
+              long localHeaderOffset) {
+            this.name = name;
+            this.flags = flags;
+            this.method = method;
+            this.dosTime = dosTime;
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+
+        boolean isDirectory() {
+            return name.endsWith("/");
+        }
+
+        boolean isEncrypted() {
+            return (flags & 0x1) != 0;
+        }
+    }
+}
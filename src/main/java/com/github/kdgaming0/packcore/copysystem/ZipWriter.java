@@ -0,0 +1,351 @@
+package com.github.kdgaming0.packcore.copysystem;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Low level ZIP writer that appends entries whose CRC and sizes are already known, or streams an entry
+ * and patches its local header afterwards. Unlike {@link java.util.zip.ZipOutputStream} this allows
+ * entries to be compressed elsewhere (for example on worker threads) and written later as raw bytes.
+ * <p>
+ * The output is a standard ZIP file, with ZIP64 records added when the archive grows past the classic limits.
+ */
+final class ZipWriter implements Closeable {
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int END_SIGNATURE = 0x06054b50;
+    private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int UTF8_FLAG = 0x0800;
+    private static final int VERSION_DEFAULT = 20;
+    private static final int VERSION_ZIP64 = 45;
+    private static final long ZIP32_MAX = 0xFFFFFFFFL;
+    private static final int ZIP16_MAX = 0xFFFF;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final List<EntryRecord> entries = new ArrayList<>();
+    private long position;
+    private EntryRecord openEntry;
+    private boolean finished;
+
+    ZipWriter(Path target, int bufferSize) throws IOException {
+        this(target, ByteBuffer.allocate(bufferSize));
+    }
+
+    /**
+     * Creates a writer that collects output in the given buffer, which may be direct. The buffer is
+     * cleared and switched to little-endian; it is not released when the writer is closed.
+     */
+    ZipWriter(Path target, ByteBuffer buffer) throws IOException {
+        this.channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        buffer.clear();
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Writes a complete entry whose data has already been compressed with the given method.
+     */
+    void writeEntry(String name, int method, long crc, long size, long mtime,
+                    byte[] data, int offset, int length) throws IOException {
+        beginEntry(name, method, mtime);
+        write(data, offset, length);
+        endEntry(crc, size);
+    }
+
+    /**
+     * Copies an entry's compressed bytes straight from another archive, without inflating or deflating.
+     */
+    void copyRawEntry(ZipCentralDirectory source, ZipCentralDirectory.Entry sourceEntry, String name, long mtime)
+            throws IOException {
+        beginEntry(name, sourceEntry.method, mtime);
+        flushBuffer();
+
+        long dataOffset = source.dataOffset(sourceEntry);
+        long remaining = sourceEntry.compressedSize;
+        FileChannel sourceChannel = source.getChannel();
+        while (remaining > 0) {
+            long transferred = sourceChannel.transferTo(dataOffset, remaining, channel);
+            if (transferred <= 0) {
+                throw new IOException("Unexpected end of source archive while copying: " + sourceEntry.name);
+            }
+            dataOffset += transferred;
+            remaining -= transferred;
+            position += transferred;
+        }
+
+        endEntry(sourceEntry.crc, sourceEntry.size);
+    }
+
+    /**
+     * Starts a streamed entry. The local header is written with placeholder CRC and sizes which are
+     * patched in place by {@link #endEntry(long, long)}.
+     */
+    EntryRecord beginEntry(String name, int method, long mtime) throws IOException {
+        if (openEntry != null) {
+            throw new IllegalStateException("Entry still open: " + openEntry.name);
+        }
+
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        if (nameBytes.length > ZIP16_MAX) {
+            throw new IOException("Entry name too long: " + name);
+        }
+
+        EntryRecord entry = new EntryRecord(name, nameBytes, method, javaToDosTime(mtime), position);
+
+        ensureCapacity(30 + nameBytes.length);
+        buffer.putInt(LOCAL_HEADER_SIGNATURE);
+        buffer.putShort((short) VERSION_DEFAULT);
+        buffer.putShort((short) UTF8_FLAG);
+        buffer.putShort((short) method);
+        buffer.putInt((int) entry.dosTime);
+        buffer.putInt(0); // CRC, patched later
+        buffer.putInt(0); // compressed size, patched later
+        buffer.putInt(0); // uncompressed size, patched later
+        buffer.putShort((short) nameBytes.length);
+        buffer.putShort((short) 0);
+        buffer.put(nameBytes);
+        position += 30 + nameBytes.length;
+
+        entry.dataOffset = position;
+        openEntry = entry;
+        return entry;
+    }
+
+    void write(byte[] data, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (!buffer.hasRemaining()) {
+                flushBuffer();
+            }
+            int chunk = Math.min(length, buffer.remaining());
+            buffer.put(data, offset, chunk);
+            offset += chunk;
+            length -= chunk;
+            position += chunk;
+        }
+    }
+
+    /**
+     * Completes the open entry and patches its local header with the final CRC and sizes.
+     */
+    void endEntry(long crc, long size) throws IOException {
+        EntryRecord entry = openEntry;
+        if (entry == null) {
+            throw new IllegalStateException("No entry open");
+        }
+        openEntry = null;
+
+        entry.crc = crc;
+        entry.size = size;
+        entry.compressedSize = position - entry.dataOffset;
+
+        if (entry.size >= ZIP32_MAX || entry.compressedSize >= ZIP32_MAX) {
+            throw new IOException("Entry too large for a single ZIP entry: " + entry.name);
+        }
+
+        long patchPosition = entry.headerOffset + 14;
+        long flushed = position - buffer.position();
+        if (patchPosition >= flushed) {
+            // Header is still in our buffer, patch it there
+            int index = (int) (patchPosition - flushed);
+            buffer.putInt(index, (int) crc);
+            buffer.putInt(index + 4, (int) entry.compressedSize);
+            buffer.putInt(index + 8, (int) entry.size);
+        } else {
+            ByteBuffer patch = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+            patch.putInt((int) crc);
+            patch.putInt((int) entry.compressedSize);
+            patch.putInt((int) entry.size);
+            patch.flip();
+            while (patch.hasRemaining()) {
+                patchPosition += channel.write(patch, patchPosition);
+            }
+        }
+
+        entries.add(entry);
+    }
+
+    /**
+     * Discards the open entry, truncating the archive back to where its local header started.
+     */
+    void abortEntry() throws IOException {
+        EntryRecord entry = openEntry;
+        if (entry == null) {
+            return;
+        }
+        openEntry = null;
+
+        flushBuffer();
+        channel.truncate(entry.headerOffset);
+        channel.position(entry.headerOffset);
+        position = entry.headerOffset;
+    }
+
+    /**
+     * Writes the central directory and end records. The comment is stored in the end record.
+     */
+    void finish(String comment) throws IOException {
+        if (finished) {
+            return;
+        }
+        if (openEntry != null) {
+            throw new IllegalStateException("Entry still open: " + openEntry.name);
+        }
+        finished = true;
+
+        byte[] commentBytes = comment == null ? new byte[0] : comment.getBytes(StandardCharsets.UTF_8);
+        long centralOffset = position;
+
+        for (EntryRecord entry : entries) {
+            boolean zip64 = entry.headerOffset >= ZIP32_MAX;
+            int extraLength = zip64 ? 12 : 0;
+
+            ensureCapacity(46 + entry.nameBytes.length + extraLength);
+            buffer.putInt(CENTRAL_HEADER_SIGNATURE);
+            buffer.putShort((short) (zip64 ? VERSION_ZIP64 : VERSION_DEFAULT));
+            buffer.putShort((short) (zip64 ? VERSION_ZIP64 : VERSION_DEFAULT));
+            buffer.putShort((short) UTF8_FLAG);
+            buffer.putShort((short) entry.method);
+            buffer.putInt((int) entry.dosTime);
+            buffer.putInt((int) entry.crc);
+            buffer.putInt((int) entry.compressedSize);
+            buffer.putInt((int) entry.size);
+            buffer.putShort((short) entry.nameBytes.length);
+            buffer.putShort((short) extraLength);
+            buffer.putShort((short) 0); // comment length
+            buffer.putShort((short) 0); // disk number
+            buffer.putShort((short) 0); // internal attributes
+            buffer.putInt(0);           // external attributes
+            buffer.putInt(zip64 ? (int) ZIP32_MAX : (int) entry.headerOffset);
+            buffer.put(entry.nameBytes);
+            if (zip64) {
+                buffer.putShort((short) 0x0001);
+                buffer.putShort((short) 8);
+                buffer.putLong(entry.headerOffset);
+            }
+            position += 46 + entry.nameBytes.length + extraLength;
+        }
+
+        long centralSize = position - centralOffset;
+        boolean zip64End = entries.size() >= ZIP16_MAX || centralOffset >= ZIP32_MAX || centralSize >= ZIP32_MAX;
+
+        if (zip64End) {
+            long zip64EndOffset = position;
+            ensureCapacity(56 + 20);
+            buffer.putInt(ZIP64_END_SIGNATURE);
+            buffer.putLong(44);
+            buffer.putShort((short) VERSION_ZIP64);
+            buffer.putShort((short) VERSION_ZIP64);
+            buffer.putInt(0);
+            buffer.putInt(0);
+            buffer.putLong(entries.size());
+            buffer.putLong(entries.size());
+            buffer.putLong(centralSize);
+            buffer.putLong(centralOffset);
+
+            buffer.putInt(ZIP64_LOCATOR_SIGNATURE);
+            buffer.putInt(0);
+            buffer.putLong(zip64EndOffset);
+            buffer.putInt(1);
+            position += 56 + 20;
+        }
+
+        ensureCapacity(22 + commentBytes.length);
+        buffer.putInt(END_SIGNATURE);
+        buffer.putShort((short) 0);
+        buffer.putShort((short) 0);
+        buffer.putShort((short) Math.min(entries.size(), ZIP16_MAX));
+        buffer.putShort((short) Math.min(entries.size(), ZIP16_MAX));
+        buffer.putInt((int) Math.min(centralSize, ZIP32_MAX));
+        buffer.putInt((int) Math.min(centralOffset, ZIP32_MAX));
+        buffer.putShort((short) commentBytes.length);
+        buffer.put(commentBytes);
+        position += 22 + commentBytes.length;
+
+        flushBuffer();
+    }
+
+    int getEntryCount() {
+        return entries.size();
+    }
+
+    long getPosition() {
+        return position;
+    }
+
+    private void ensureCapacity(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flushBuffer();
+            if (buffer.remaining() < bytes) {
+                throw new IOException("Record larger than write buffer: " + bytes + " bytes");
+            }
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (!finished) {
+                flushBuffer();
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Converts a Java timestamp to the MS-DOS date/time format used by ZIP headers.
+     */
+    static long javaToDosTime(long time) {
+        LocalDateTime date = LocalDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneId.systemDefault());
+        int year = date.getYear();
+        if (year < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+        return ((year - 1980) << 25) | (date.getMonthValue() << 21) | (date.getDayOfMonth() << 16)
+                | (date.getHour() << 11) | (date.getMinute() << 5) | (date.getSecond() >> 1);
+    }
+
+    /**
+     * Bookkeeping for a written entry, used to build the central directory.
+     */
+    static final class EntryRecord {
+        final String name;
+        final byte[] nameBytes;
+        final int method;
+        final long dosTime;
+        final long headerOffset;
+        long dataOffset;
+        long crc;
+        long size;
+        long compressedSize;
+
+        EntryRecord(String name, byte[] nameBytes, int method, long dosTime, long headerOffset) {
+            this.name = name;
+            this.nameBytes = nameBytes;
+            this.method = method;
+            this.dosTime = dosTime;
+            this.headerOffset = headerOffset;
+        }
+    }
+}
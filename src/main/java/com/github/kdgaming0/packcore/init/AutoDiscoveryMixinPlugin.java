@@ -35,6 +35,10 @@ public class AutoDiscoveryMixinPlugin implements IMixinConfigPlugin {
     }
 
     private String mixinPackage;
+    // Plain nanoTime values, handed to StartupTimings once the mod is initialized
+    private long discoveryStartNanos;
+    private long discoveryEndNanos;
+    private String discoveryThread;
 
     @Override
     public void onLoad(String mixinPackage) {
@@ -75,6 +79,25 @@ public class AutoDiscoveryMixinPlugin implements IMixinConfigPlugin {
         return mixinPackage;
     }
 
+    /**
+     * Whether {@link #getMixins()} has finished discovering mixins, so the discovery times below are set.
+     */
+    public boolean hasDiscoveryTiming() {
+        return discoveryEndNanos != 0;
+    }
+
+    public long getDiscoveryStartNanos() {
+        return discoveryStartNanos;
+    }
+
+    public long getDiscoveryEndNanos() {
+        return discoveryEndNanos;
+    }
+
+    public String getDiscoveryThread() {
+        return discoveryThread;
+    }
+
     /**
      * Get the path inside the class root to the mixin package
      */
@@ -120,11 +143,14 @@ public class AutoDiscoveryMixinPlugin implements IMixinConfigPlugin {
             throw new RuntimeException(e);
         }
         System.out.println("Base directory found at " + file);
+        discoveryThread = Thread.currentThread().getName();
+        discoveryStartNanos = System.nanoTime();
         if (Files.isDirectory(file)) {
             walkDir(file);
         } else {
             walkJar(file);
         }
+        discoveryEndNanos = System.nanoTime();
         System.out.println("Found mixins: " + mixins);
 
         return mixins;
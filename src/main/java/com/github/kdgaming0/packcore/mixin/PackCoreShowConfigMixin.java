@@ -4,6 +4,8 @@ import com.github.kdgaming0.packcore.config.ModConfig;
 import com.github.kdgaming0.packcore.copysystem.ConfigExtractionService;
 import com.github.kdgaming0.packcore.copysystem.ConfigSelectionResult;
 import com.github.kdgaming0.packcore.copysystem.ConfigSelectionDialog;
+import com.github.kdgaming0.packcore.task.PackCoreTasks;
+import com.github.kdgaming0.packcore.utils.StartupTimings;
 import net.minecraft.client.Minecraft;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -14,8 +16,12 @@ import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 
 import java.io.File;
-import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Mixin(Minecraft.class)
 public class PackCoreShowConfigMixin {
@@ -24,46 +30,61 @@ public class PackCoreShowConfigMixin {
     @Unique
     private static final int DIALOG_TIMEOUT_MINUTES = 10;
 
+    /** Auto-extraction still running in the background, awaited before the game reads any config folders. */
+    @Unique
+    private static Future<Boolean> packCore$pendingExtraction;
+
     @Inject(method = "startGame", at = @At("HEAD"))
     private void onGameStart(CallbackInfo ci) {
         LOGGER.info("Starting PackCore pre-launch configuration extraction...");
 
         try {
             // Load configuration first
-            ModConfig.loadConfig();
+            try (StartupTimings.Span ignored = StartupTimings.start("preLaunch.modConfig")) {
+                ModConfig.loadConfig();
+            }
 
             // Get Minecraft instance and game directory
             Minecraft mc = (Minecraft)(Object)this;
             File minecraftRoot = mc.mcDataDir;
             ConfigExtractionService extractionService = new ConfigExtractionService(minecraftRoot);
 
+            // The first Swing window is slow to appear, so start preparing it while recovering and scanning
+            if (ModConfig.getPromptSetDefaultConfig() && extractionService.isDialogLikely()) {
+                ConfigSelectionDialog.warmUp();
+            }
+
+            // Undo a config apply that was cut off by a crash before anything reads the configs
+            int rolledBack;
+            try (StartupTimings.Span ignored = StartupTimings.start("preLaunch.recovery")) {
+                rolledBack = extractionService.recoverInterruptedApply();
+            }
+            if (rolledBack > 0) {
+                LOGGER.warn("Rolled back {} interrupted config apply(s)", rolledBack);
+            }
+
             // Check if we need to show the dialog
             if (!ModConfig.getPromptSetDefaultConfig()) {
                 LOGGER.info("Config dialog disabled, skipping user prompt");
                 return;
             }
 
-            ConfigSelectionResult result = extractionService.selectAndExtractConfig();
+            ConfigSelectionResult result;
+            try (StartupTimings.Span ignored = StartupTimings.start("preLaunch.scan")) {
+                result = extractionService.selectAndExtractConfig();
+            }
 
             if (result.shouldShowDialog()) {
                 LOGGER.info("Multiple configs found, showing selection dialog");
-                packCore$showConfigSelectionDialog(extractionService);
+                try (StartupTimings.Span ignored = StartupTimings.start("preLaunch.dialog")) {
+                    packCore$showConfigSelectionDialog(extractionService, result);
+                }
             } else if (result.hasAutoExtractConfig()) {
                 LOGGER.info("Auto-extracting single config: {}", result.getConfigName());
-                boolean success = extractionService.extractConfig(result.getConfigName(), result.getConfigType());
-
-                if (success) {
-                    // Disable the prompt for next time, just like in the dialog flow
-                    LOGGER.info("Auto-extraction successful, disabling config prompt for next launch");
-                    ModConfig.setPromptSetDefaultConfig(false);
-                    ModConfig.saveConfig(); // Explicitly save the config
-
-                    try {
-                        // Short delay to ensure file write completes
-                        Thread.sleep(100);
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                    }
+                // options.txt and other top-level files are applied now, the rest while the display is created
+                try (StartupTimings.Span ignored = StartupTimings.start("preLaunch.extraction")) {
+                    packCore$pendingExtraction = extractionService.extractConfigInBackground(
+                            result.getConfigName(), result.getConfigType());
                 }
             } else {
                 LOGGER.info("No configs found, using default settings");
@@ -74,18 +95,58 @@ public class PackCoreShowConfigMixin {
             // Continue startup even if config extraction fails
         }
 
-        LOGGER.info("Pre-launch configuration extraction completed");
+        LOGGER.info(packCore$pendingExtraction != null
+                ? "Pre-launch configuration extraction continues in the background"
+                : "Pre-launch configuration extraction completed");
     }
 
-    @Unique
-    private void packCore$showConfigSelectionDialog(ConfigExtractionService extractionService) {
+    /**
+     * Waits for a background extraction right before the resource pack repository is created, which is
+     * the first thing after the display setup to read the game folder; FML loads mod configs later still.
+     */
+    @Inject(method = "startGame",
+            at = @At(value = "NEW", target = "net/minecraft/client/resources/ResourcePackRepository"))
+    private void onBeforeResourcePacks(CallbackInfo ci) {
+        Future<Boolean> pendingExtraction = packCore$pendingExtraction;
+        if (pendingExtraction == null) {
+            return;
+        }
+        packCore$pendingExtraction = null;
+
         try {
-            // Use CompletableFuture to handle the dialog asynchronously but block the main thread
-            CompletableFuture<Boolean> dialogResult = CompletableFuture.supplyAsync(() -> {
-                ConfigSelectionDialog dialog = new ConfigSelectionDialog(extractionService);
-                return dialog.showAndWait();
-            });
+            boolean success;
+            try (StartupTimings.Span ignored = StartupTimings.start("preLaunch.extractionWait")) {
+                success = pendingExtraction.get();
+            }
 
+            if (success) {
+                // Disable the prompt for next time, just like in the dialog flow
+                LOGGER.info("Auto-extraction successful, disabling config prompt for next launch");
+                ModConfig.setPromptSetDefaultConfig(false);
+            } else {
+                LOGGER.warn("Auto-extraction failed, the config prompt stays enabled");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.error("Interrupted while waiting for the background config extraction", e);
+        } catch (ExecutionException e) {
+            LOGGER.error("Error during background config extraction", e.getCause());
+        }
+    }
+
+    @Unique
+    private void packCore$showConfigSelectionDialog(ConfigExtractionService extractionService,
+                                                     ConfigSelectionResult scanResult) {
+        // The wait lasts as long as the dialog is open, so it gets its own thread instead of a pool slot
+        AtomicReference<ConfigSelectionDialog> dialog = new AtomicReference<>();
+        FutureTask<Boolean> dialogResult = new FutureTask<>(() -> {
+            dialog.set(ConfigSelectionDialog.create(extractionService,
+                    scanResult.getOfficialConfigs(), scanResult.getCustomConfigs()));
+            return dialog.get().showAndWait();
+        });
+        PackCoreTasks.newThread("PackCore-ConfigDialog", dialogResult).start();
+
+        try {
             // Block until dialog completes or times out
             Boolean success = dialogResult.get(DIALOG_TIMEOUT_MINUTES, TimeUnit.MINUTES);
 
@@ -95,6 +156,13 @@ public class PackCoreShowConfigMixin {
                 LOGGER.warn("Config selection was cancelled or failed");
             }
 
+        } catch (TimeoutException e) {
+            LOGGER.warn("Config selection timed out after {} minutes, closing the dialog", DIALOG_TIMEOUT_MINUTES);
+            ConfigSelectionDialog openDialog = dialog.get();
+            if (openDialog != null) {
+                openDialog.close();
+            }
+            dialogResult.cancel(true);
         } catch (Exception e) {
             LOGGER.error("Error showing config selection dialog", e);
         }
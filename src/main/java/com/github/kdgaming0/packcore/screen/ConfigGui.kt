@@ -195,7 +195,6 @@ class ConfigGui : WindowScreen(ElementaVersion.V7) {
             } childOf button
 
             button.onMouseClick {
-                ModConfig.saveConfig()
                 displayScreen(null)
             }
             button.onMouseEnter {
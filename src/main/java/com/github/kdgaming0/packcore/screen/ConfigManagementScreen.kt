@@ -1,5 +1,7 @@
 package com.github.kdgaming0.packcore.screen
 
+import com.github.kdgaming0.packcore.copysystem.ConfigArchiveIndex
+import com.github.kdgaming0.packcore.copysystem.ConfigType
 import com.github.kdgaming0.packcore.screen.utils.CreateMenuButton
 import gg.essential.elementa.ElementaVersion
 import gg.essential.elementa.WindowScreen
@@ -258,14 +260,14 @@ class ConfigManagementScreen : WindowScreen(ElementaVersion.V7) {
         // Official configs column
         createConfigColumn(
             "Official Configs",
-            "OfficialConfigs",
+            ConfigType.OFFICIAL,
             5.pixels()
         ) childOf columnsContainer
 
         // Custom configs column
         createConfigColumn(
             "Custom Configs",
-            "CustomConfigs",
+            ConfigType.CUSTOM,
             52.percent()
         ) childOf columnsContainer
     }
@@ -310,14 +312,14 @@ class ConfigManagementScreen : WindowScreen(ElementaVersion.V7) {
 
     /**
      * Creates a UI column for either "Official Configs" or "Custom Configs".
-     * Scans the specified folder and builds a scrollable list of .zip configs.
+     * Builds a scrollable list of the .zip configs and snapshots known to the shared config index.
      *
      * - title: Display name for the column
-     * - subfolderName: Subfolder inside "Skyblock Enhanced" (e.g., "OfficialConfigs")
+     * - configType: Which subfolder inside "Skyblock Enhanced" to list
      * - xPos: Horizontal constraint for column placement in the parent container
      */
-    private fun createConfigColumn(title: String, subfolderName: String, xPos: XConstraint): UIContainer {
-        val configFolder = File(skyblockFolder, subfolderName)
+    private fun createConfigColumn(title: String, configType: ConfigType, xPos: XConstraint): UIContainer {
+        val configFolder = File(skyblockFolder, configType.folderName)
         if (!configFolder.exists()) {
             configFolder.mkdirs()
         }
@@ -343,25 +345,19 @@ class ConfigManagementScreen : WindowScreen(ElementaVersion.V7) {
                 height = RelativeConstraint(1f) - 25.pixels()
             } childOf column
 
-            // Populate list with .zip files (if any)
-            val configFiles = configFolder.listFiles { file ->
-                file.isFile && file.name.endsWith(".zip")
-            }
-
-            if (configFiles != null && configFiles.isNotEmpty()) {
-                configFiles.forEach { configFile ->
-                    createConfigEntry(configFile) childOf scrollComponent
-                }
+            // Populate list from the index, which already has the manifest summaries
+            ConfigArchiveIndex.get(skyblockFolder).getConfigs(configType).forEach { config ->
+                createConfigEntry(File(configFolder, config.name), config.manifest?.describe()) childOf scrollComponent
             }
         }
     }
 
     /**
      * Builds a single config entry row:
-     * - Shows config name
+     * - Shows config name, with a summary line when the manifest is known
      * - If in "CustomConfigs", adds a "Delete" button
      */
-    private fun createConfigEntry(configFile: File): UIContainer {
+    private fun createConfigEntry(configFile: File, summary: String?): UIContainer {
         return UIContainer().constrain {
             x = 0.pixels()
             y = SiblingConstraint(5f)
@@ -378,9 +374,19 @@ class ConfigManagementScreen : WindowScreen(ElementaVersion.V7) {
             // Config name
             UIText(configFile.nameWithoutExtension).constrain {
                 x = 5.pixels()
-                y = CenterConstraint()
+                y = if (summary != null) 5.pixels() else CenterConstraint()
             } childOf container
 
+            // File count, size and resolution from the manifest
+            if (summary != null) {
+                UIText(summary).constrain {
+                    x = 5.pixels()
+                    y = 18.pixels()
+                    textScale = 0.75.pixels()
+                    color = Color(170, 170, 170).toConstraint()
+                } childOf container
+            }
+
             // Delete button if in CustomConfigs
             if (configFile.parentFile.name == "CustomConfigs") {
                 createSmallButton("Delete") {
@@ -1,7 +1,12 @@
 package com.github.kdgaming0.packcore.screen
 
 import com.github.kdgaming0.packcore.config.ModConfig
+import com.github.kdgaming0.packcore.copysystem.ArchiveManifest
+import com.github.kdgaming0.packcore.copysystem.ArchiveOptions
+import com.github.kdgaming0.packcore.copysystem.FileSnapshot
+import com.github.kdgaming0.packcore.copysystem.ZipArchiver
 import com.github.kdgaming0.packcore.screen.utils.CreateCheckmark
+import com.github.kdgaming0.packcore.task.PackCoreTasks
 import com.github.kdgaming0.packcore.screen.utils.CreateMenuButton
 import gg.essential.elementa.components.*
 import gg.essential.elementa.components.input.UITextInput
@@ -10,11 +15,23 @@ import gg.essential.elementa.constraints.*
 import gg.essential.elementa.constraints.animation.Animations
 import gg.essential.elementa.dsl.*
 import gg.essential.elementa.effects.OutlineEffect
+import net.minecraft.client.Minecraft
 import java.awt.Color
+import java.io.File
+import java.nio.file.Path
 
 class CreateConfigZip : UIContainer() {
     private var closeCallback: () -> Unit = {}
 
+    private val minecraftRoot = Minecraft.getMinecraft().mcDataDir.toPath().toAbsolutePath().normalize()
+    private val customConfigFolder = File(minecraftRoot.toFile(), "Skyblock Enhanced/CustomConfigs")
+    private val rootEntries = mutableListOf<RootEntry>()
+    private var archiving = false
+
+    private class RootEntry(val path: Path) {
+        var selected = false
+    }
+
     fun onWindowClose(callback: () -> Unit): CreateConfigZip {
         closeCallback = callback
         return this
@@ -132,6 +149,19 @@ class CreateConfigZip : UIContainer() {
             hideWhenUseless = true // hide when content doesn't need scrolling
         )
 
+        // One checkmark per file or folder in the Minecraft root, folders first
+        minecraftRoot.toFile().listFiles()
+            ?.filter { it.name != "Skyblock Enhanced" }
+            ?.sortedWith(compareBy({ !it.isDirectory }, { it.name.lowercase() }))
+            ?.forEach { file ->
+                val entry = RootEntry(file.toPath())
+                rootEntries.add(entry)
+                CreateCheckmark(if (file.isDirectory) "${file.name}/" else file.name, entry::selected).constrain {
+                    x = 5.pixels()
+                    width = 90.percent()
+                } childOf scrollBox
+            }
+
 
         // Create confirmation pop-up
         val confirmPopUp = UIRoundedRectangle(4f).constrain {
@@ -159,7 +189,7 @@ class CreateConfigZip : UIContainer() {
             y = 5.pixels(true)
         } childOf backgroundPanel
 
-        UIText("Work in progress don't work!").constrain {
+        val statusText = UIText("").constrain {
             x = CenterConstraint()
             y = 10.pixels(true)
             textScale = 1.pixels()
@@ -212,7 +242,7 @@ class CreateConfigZip : UIContainer() {
                 // close menu
 
             } else {
-                // Call function to create config zip
+                createArchive(zipFileName, statusText)
             }
             giveNameText.setColor(Color.RED)
         }.constrain {
@@ -231,4 +261,59 @@ class CreateConfigZip : UIContainer() {
         } childOf confirmPopUp
 
         }
+
+    /**
+     * Archives the selected root entries into CustomConfigs on a background thread and reports the
+     * result in the status line.
+     */
+    private fun createArchive(zipFileName: String, statusText: UIText) {
+        val selectedPaths = rootEntries.filter { it.selected }.map { it.path }
+        if (selectedPaths.isEmpty()) {
+            statusText.setText("Select at least one item to archive")
+            return
+        }
+        if (archiving) return
+        archiving = true
+
+        val fileName = if (zipFileName.endsWith(".zip")) zipFileName else "$zipFileName.zip"
+        val outputFile = File(customConfigFolder, fileName)
+        customConfigFolder.mkdirs()
+        statusText.setText("Creating archive...")
+        val mc = Minecraft.getMinecraft()
+        val resolution = "${mc.displayWidth}x${mc.displayHeight}"
+
+        try {
+            PackCoreTasks.submitJob("Archive $fileName", outputFile.toPath()) { job ->
+                var message = "Failed to create archive, check the log"
+                try {
+                    var lastProgress = -1
+                    val snapshot = FileSnapshot.capture(minecraftRoot, selectedPaths)
+                    val options = ArchiveOptions.defaults()
+                        .withThreads(PackCoreTasks.getCpuThreads())
+                        .withExecutor(PackCoreTasks.cpu())
+                        .withCancellation { job.isCancelled }
+                        .withProperty(ArchiveManifest.PROPERTY_RESOLUTION, resolution)
+                    val result = ZipArchiver.createArchive(outputFile.toPath(), snapshot, { progress ->
+                        job.setProgress(progress)
+                        if (progress != lastProgress) {
+                            lastProgress = progress
+                            Window.enqueueRenderOperation { statusText.setText("Creating archive... $progress%") }
+                        }
+                    }, options)
+                    if (result.isSuccess) {
+                        message = "Saved $fileName: ${result.describe()}"
+                    }
+                } finally {
+                    // Also runs when the snapshot or the archiver throws, so the screen never stays busy
+                    Window.enqueueRenderOperation {
+                        archiving = false
+                        statusText.setText(message)
+                    }
+                }
+            }
+        } catch (e: IllegalStateException) {
+            archiving = false
+            statusText.setText(e.message ?: "Could not start archive")
+        }
     }
+}
@@ -19,11 +19,9 @@ class OptifineGuide : UIContainer() {
         if (isChecked) {
             checkbox.addChild(checkmark)
             ModConfig.setShowOptifineGuide(false)
-            ModConfig.saveConfig() // Make sure config is saved
         } else {
             checkbox.removeChild(checkmark)
             ModConfig.setShowOptifineGuide(true)
-            ModConfig.saveConfig() // Make sure config is saved
         }
     }
 
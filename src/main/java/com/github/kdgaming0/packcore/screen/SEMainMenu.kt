@@ -7,7 +7,9 @@ import com.github.kdgaming0.packcore.screen.utils.CreateMenuButtonInfo
 import com.github.kdgaming0.packcore.screen.utils.CreateMenuButtonJoinServer
 import com.github.kdgaming0.packcore.screen.utils.CreateWebsiteButton
 import com.github.kdgaming0.packcore.utils.CheckForUpdates
+import com.github.kdgaming0.packcore.utils.CircuitBreaker
 import com.github.kdgaming0.packcore.utils.ModpackInfo
+import com.github.kdgaming0.packcore.utils.ModrinthAPICaller
 import gg.essential.elementa.ElementaVersion
 import gg.essential.elementa.UIComponent
 import gg.essential.elementa.WindowScreen
@@ -22,6 +24,8 @@ import net.minecraft.client.gui.GuiOptions
 import net.minecraft.client.gui.GuiSelectWorld
 import net.minecraftforge.fml.common.Loader
 import java.awt.Color
+import java.text.SimpleDateFormat
+import java.util.Date
 
 /**
  * Main menu screen for SkyBlock Enhanced modpack.
@@ -29,11 +33,12 @@ import java.awt.Color
  */
 class SEMainMenu : WindowScreen(ElementaVersion.V7) {
 
-    // Version information retrieved once during initialization
-    private val versionInfo = CheckForUpdates.checkForUpdates()
-    private val currentVersion = versionInfo.getOrNull(0) ?: "Unknown"
-    private val latestVersion = versionInfo.getOrNull(1) ?: "Unknown"
-    private val changeLog = versionInfo.getOrNull(2) ?: "No change log available."
+    // Version information, filled in when the background update check completes
+    private val updateCheck = CheckForUpdates.prefetch()
+    private var updateCheckDone = false
+    private var currentVersion = "Unknown"
+    private var latestVersion = "Checking..."
+    private var changeLog = "Checking for updates..."
 
     // State management
     private var isInfoPanelVisible = false
@@ -43,6 +48,12 @@ class SEMainMenu : WindowScreen(ElementaVersion.V7) {
     // Store references to animated components
     private lateinit var infoPanel: UIRoundedRectangle
 
+    // Components updated with the result of the update check
+    private lateinit var versionText: UIWrappedText
+    private lateinit var updateMessageText: UIWrappedText
+    private lateinit var connectionStatusText: UIWrappedText
+    private lateinit var changelogScroll: ScrollComponent
+
     // UI color constants
     private companion object {
         val BACKGROUND_COLOR = Color(40, 40, 40, 150)
@@ -62,6 +73,10 @@ class SEMainMenu : WindowScreen(ElementaVersion.V7) {
 
     init {
         setupUI()
+        // The menu never waits on the network; the result is applied on the render thread once it arrives
+        updateCheck.whenComplete { info, error ->
+            Window.enqueueRenderOperation { applyVersionInfo(if (error == null) info else null) }
+        }
     }
 
     /**
@@ -272,6 +287,7 @@ class SEMainMenu : WindowScreen(ElementaVersion.V7) {
     private fun populateInfoPanel(panel: UIRoundedRectangle) {
         createVersionDisplay(panel)
         createUpdateMessage(panel)
+        createConnectionStatus(panel)
         createChangelogSection(panel)
         createScrollBar(panel)
     }
@@ -280,7 +296,7 @@ class SEMainMenu : WindowScreen(ElementaVersion.V7) {
      * Creates version information display in the info panel
      */
     private fun createVersionDisplay(panel: UIRoundedRectangle) {
-        UIWrappedText("Current Version: $currentVersion - Latest Version: $latestVersion").constrain {
+        versionText = UIWrappedText(getVersionText()).constrain {
             x = 5.pixels()
             y = 5.pixels()
             width = 100.percent() - 10.pixels()
@@ -295,19 +311,63 @@ class SEMainMenu : WindowScreen(ElementaVersion.V7) {
     private fun createUpdateMessage(panel: UIRoundedRectangle) {
         val (message, color) = getUpdateMessageAndColor()
 
-        UIWrappedText(message).constrain {
+        updateMessageText = UIWrappedText(message).constrain {
             x = 5.pixels()
             y = SiblingConstraint(5f)
             width = 100.percent() - 10.pixels()
             textScale = 1.pixels()
+            this.color = color.toConstraint()
+        } childOf panel
+    }
+
+    /**
+     * Creates the line showing whether Modrinth can be reached
+     */
+    private fun createConnectionStatus(panel: UIRoundedRectangle) {
+        val (message, color) = getConnectionStatusAndColor()
+
+        connectionStatusText = UIWrappedText(message).constrain {
+            x = 5.pixels()
+            y = SiblingConstraint(3f)
+            width = 100.percent() - 10.pixels()
+            textScale = 0.8.pixels()
+            this.color = color.toConstraint()
         } childOf panel
     }
 
+    /**
+     * Describes the update server connection, including when an offline check is retried
+     */
+    private fun getConnectionStatusAndColor(): Pair<String, Color> {
+        if (!ModpackInfo.shouldCheckForUpdates()) {
+            return "Update checks are disabled." to Color.LIGHT_GRAY
+        }
+        val status = ModrinthAPICaller.getConnectionStatus()
+        return when (status.state) {
+            CircuitBreaker.State.OPEN ->
+                "Offline: Modrinth could not be reached. Retrying after ${SimpleDateFormat("HH:mm").format(Date(status.retryAt))}." to VERSION_COLOR
+            CircuitBreaker.State.HALF_OPEN -> "Reconnecting to Modrinth..." to Color.LIGHT_GRAY
+            else -> if (updateCheckDone) "Update server: online" to Color.LIGHT_GRAY else "Update server: connecting..." to Color.LIGHT_GRAY
+        }
+    }
+
+    private fun updateConnectionStatus() {
+        val (message, color) = getConnectionStatusAndColor()
+        connectionStatusText.setText(message)
+        connectionStatusText.setColor(color.toConstraint())
+    }
+
+    private fun getVersionText(): String {
+        return "Current Version: $currentVersion - Latest Version: $latestVersion"
+    }
+
     /**
      * Determines update message and color based on version comparison
      */
     private fun getUpdateMessageAndColor(): Pair<String, Color> {
-        return if (isUpToDate()) {
+        return if (!updateCheckDone) {
+            "Checking for updates..." to Color.LIGHT_GRAY
+        } else if (isUpToDate()) {
             "You are up to date! Change log for current version." to Color.WHITE
         } else {
             "A new update is available! Change log for the latest version." to Color.RED
@@ -328,13 +388,17 @@ class SEMainMenu : WindowScreen(ElementaVersion.V7) {
         } childOf panel
 
         // Scrollable changelog
-        val scrollComponent = ScrollComponent().constrain {
+        changelogScroll = ScrollComponent().constrain {
             x = 5.pixels()
             y = SiblingConstraint(5f)
             width = 90.percent()
-            height = 100.percent() - 60.pixels()
+            height = 100.percent() - 72.pixels()
         } childOf panel
 
+        createChangelog()
+    }
+
+    private fun createChangelog() {
         MarkdownComponent(changeLog.trimIndent()).constrain {
             x = 0.pixels()
             y = 0.pixels()
@@ -342,7 +406,30 @@ class SEMainMenu : WindowScreen(ElementaVersion.V7) {
             height = ChildBasedSizeConstraint()
             textScale = 0.1.pixels()
             color = Color.WHITE.toConstraint()
-        } childOf scrollComponent
+        } childOf changelogScroll
+    }
+
+    /**
+     * Shows the result of the update check; a failed check leaves the versions unknown
+     */
+    private fun applyVersionInfo(versionInfo: Array<String?>?) {
+        currentVersion = versionInfo?.getOrNull(0) ?: "Unknown"
+        latestVersion = versionInfo?.getOrNull(1) ?: "Unknown"
+        changeLog = versionInfo?.getOrNull(2) ?: "No change log available."
+        updateCheckDone = true
+
+        versionText.setText(getVersionText())
+        val (message, color) = getUpdateMessageAndColor()
+        updateMessageText.setText(message)
+        updateMessageText.setColor(color.toConstraint())
+        updateConnectionStatus()
+        changelogScroll.clearChildren()
+        createChangelog()
+
+        // Show update notification if not up to date
+        if (!isUpToDate()) {
+            showInfoPanel()
+        }
     }
 
     /**
@@ -459,6 +546,11 @@ class SEMainMenu : WindowScreen(ElementaVersion.V7) {
      * Toggles the visibility of the info panel with animation
      */
     private fun toggleInfoPanel() {
+        if (!isInfoPanelVisible) {
+            // The connection may have dropped or come back since the menu opened
+            updateConnectionStatus()
+        }
+
         val targetX = if (isInfoPanelVisible) {
             RelativeConstraint(1f) + INFO_PANEL_OFFSET.percent()
         } else {
@@ -532,11 +624,6 @@ class SEMainMenu : WindowScreen(ElementaVersion.V7) {
     }
 
     override fun afterInitialization() {
-        // Show update notification if not up to date
-        if (!isUpToDate()) {
-            showInfoPanel()
-        }
-
         // Show Optifine guide if conditions are met
         if (shouldShowOptifineGuide()) {
             openOptifineGuide()
@@ -0,0 +1,103 @@
+package com.github.kdgaming0.packcore.task;
+
+import java.nio.file.Path;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A named background job tracked by {@link PackCoreTasks}. Jobs report their progress here and check
+ * {@link #isCancelled()} between units of work, so a cancel request stops them at the next safe point.
+ */
+public final class Job {
+
+    public enum State {
+        QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED
+    }
+
+    /**
+     * The work a job runs on the IO pool.
+     */
+    @FunctionalInterface
+    public interface Body {
+        void run(Job job) throws Exception;
+    }
+
+    private final int id;
+    private final String name;
+    private final Path destination;
+    private final long createdAt = System.currentTimeMillis();
+    private final AtomicReference<State> state = new AtomicReference<>(State.QUEUED);
+    private volatile int progress;
+    private volatile boolean cancelRequested;
+    private volatile Future<?> future;
+
+    Job(int id, String name, Path destination) {
+        this.id = id;
+        this.name = name;
+        this.destination = destination;
+    }
+
+    public int getId() { return id; }
+    public String getName() { return name; }
+    public Path getDestination() { return destination; }
+    public long getCreatedAt() { return createdAt; }
+    public State getState() { return state.get(); }
+    public int getProgress() { return progress; }
+
+    public void setProgress(int progress) {
+        this.progress = Math.max(0, Math.min(100, progress));
+    }
+
+    public boolean isCancelled() {
+        return cancelRequested;
+    }
+
+    public boolean isFinished() {
+        State current = state.get();
+        return current == State.COMPLETED || current == State.FAILED || current == State.CANCELLED;
+    }
+
+    /**
+     * Asks the job to stop. A queued job never starts; a running one stops at its next check.
+     *
+     * @return true if the job was still queued and is now cancelled, in which case the caller finishes it
+     */
+    boolean requestCancel() {
+        cancelRequested = true;
+        return cancelIfQueued();
+    }
+
+    /**
+     * Cancels the job only if it has not started; a running job is left alone.
+     *
+     * @return true if the job is now cancelled, in which case the caller finishes it
+     */
+    boolean cancelIfQueued() {
+        if (!state.compareAndSet(State.QUEUED, State.CANCELLED)) {
+            return false;
+        }
+        cancelRequested = true;
+        Future<?> current = future;
+        if (current != null) {
+            current.cancel(false);
+        }
+        return true;
+    }
+
+    /**
+     * Moves a queued job to running.
+     *
+     * @return false if the job was cancelled first and must not run
+     */
+    boolean start() {
+        return state.compareAndSet(State.QUEUED, State.RUNNING);
+    }
+
+    void setState(State state) {
+        this.state.set(state);
+    }
+
+    void setFuture(Future<?> future) {
+        this.future = future;
+    }
+}
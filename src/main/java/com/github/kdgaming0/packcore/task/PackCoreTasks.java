@@ -0,0 +1,260 @@
+package com.github.kdgaming0.packcore.task;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared background runtime for PackCore.
+ * <p>
+ * There are two bounded pools of named daemon threads: an IO pool for disk and network work (archive jobs,
+ * extraction, dialogs) and a CPU pool for compression, sized to leave one core for the game. Large directory
+ * walks fork onto a third, fork-join scan pool of the same size instead of the JVM's common pool. Archive and
+ * extraction work is submitted as a {@link Job}, which is registered so it can be listed and cancelled;
+ * only one job may write to a given destination at a time.
+ * <p>
+ * Long-lived waits such as folder watchers run on their own threads from {@link #newThread(String, Runnable)}
+ * and register what they wait on with {@link #closeOnShutdown(Closeable)}.
+ * <p>
+ * On shutdown, registered resources are closed, queued jobs are cancelled and running ones get
+ * {@link #DRAIN_TIMEOUT_SECONDS} to finish.
+ */
+public final class PackCoreTasks {
+    private static final Logger LOGGER = LogManager.getLogger(PackCoreTasks.class);
+
+    private static final int IO_THREADS = 2;
+    private static final int CPU_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    private static final int IO_QUEUE_CAPACITY = 32;
+    private static final int FINISHED_JOBS_KEPT = 10;
+    private static final long DRAIN_TIMEOUT_SECONDS = 30;
+
+    private static final ThreadPoolExecutor IO_POOL = createPool("PackCore-IO", IO_THREADS,
+            new LinkedBlockingQueue<>(IO_QUEUE_CAPACITY));
+    private static final ThreadPoolExecutor CPU_POOL = createPool("PackCore-CPU", CPU_THREADS,
+            new LinkedBlockingQueue<>());
+    private static final ForkJoinPool SCAN_POOL = createForkJoinPool("PackCore-Scan", CPU_THREADS);
+
+    private static final AtomicInteger nextJobId = new AtomicInteger(1);
+    private static final Map<Path, Job> activeJobs = new ConcurrentHashMap<>();
+    private static final Deque<Job> finishedJobs = new ArrayDeque<>();
+    private static final List<Closeable> shutdownResources = new CopyOnWriteArrayList<>();
+    private static volatile boolean shuttingDown;
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(PackCoreTasks::shutdown, "PackCore-Shutdown"));
+    }
+
+    private PackCoreTasks() {
+    }
+
+    /**
+     * Pool for blocking disk and network work.
+     */
+    public static ExecutorService io() {
+        return IO_POOL;
+    }
+
+    /**
+     * Pool for CPU bound work such as compression.
+     */
+    public static ExecutorService cpu() {
+        return CPU_POOL;
+    }
+
+    /**
+     * Fork-join pool for walking large directory trees.
+     */
+    public static ForkJoinPool scan() {
+        return SCAN_POOL;
+    }
+
+    public static int getCpuThreads() {
+        return CPU_THREADS;
+    }
+
+    /**
+     * Closes a resource when PackCore shuts down, for example a watch service whose thread waits on it.
+     */
+    public static void closeOnShutdown(Closeable resource) {
+        shutdownResources.add(resource);
+    }
+
+    /**
+     * Registers a job and queues it on the IO pool.
+     *
+     * @param name Short description shown by the status command
+     * @param destination The file or folder the job writes; only one job per destination can be active
+     * @param body The work to run
+     * @return the job
+     * @throws IllegalStateException if another job is writing to the same destination, the queue is full
+     *                               or the runtime is shutting down
+     */
+    public static Job submitJob(String name, Path destination, Job.Body body) {
+        if (shuttingDown) {
+            throw new IllegalStateException("PackCore is shutting down");
+        }
+
+        Path key = destination.toAbsolutePath().normalize();
+        Job job = new Job(nextJobId.getAndIncrement(), name, key);
+        Job existing = activeJobs.putIfAbsent(key, job);
+        if (existing != null) {
+            throw new IllegalStateException("Job #" + existing.getId() + " is already writing to " + key.getFileName());
+        }
+
+        try {
+            job.setFuture(IO_POOL.submit(() -> runJob(job, body)));
+        } catch (RejectedExecutionException e) {
+            activeJobs.remove(key, job);
+            throw new IllegalStateException("Too many background jobs queued, try again later");
+        }
+        return job;
+    }
+
+    /**
+     * Active jobs followed by the most recently finished ones.
+     */
+    public static List<Job> getJobs() {
+        List<Job> jobs = new ArrayList<>(activeJobs.values());
+        jobs.sort((a, b) -> Integer.compare(a.getId(), b.getId()));
+        synchronized (finishedJobs) {
+            jobs.addAll(finishedJobs);
+        }
+        return jobs;
+    }
+
+    /**
+     * Requests cancellation of an active job.
+     *
+     * @return false if no active job has this id
+     */
+    public static boolean cancel(int jobId) {
+        for (Job job : activeJobs.values()) {
+            if (job.getId() == jobId) {
+                if (job.requestCancel()) {
+                    // Never started, so runJob will not clean it up
+                    finish(job);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void runJob(Job job, Job.Body body) {
+        if (!job.start()) {
+            // Cancelled while queued; whoever cancelled it has already finished it
+            return;
+        }
+
+        try {
+            body.run(job);
+            job.setState(job.isCancelled() ? Job.State.CANCELLED : Job.State.COMPLETED);
+        } catch (Exception e) {
+            LOGGER.error("Background job #{} ({}) failed", job.getId(), job.getName(), e);
+            job.setState(job.isCancelled() ? Job.State.CANCELLED : Job.State.FAILED);
+        } finally {
+            finish(job);
+        }
+    }
+
+    private static void finish(Job job) {
+        if (!activeJobs.remove(job.getDestination(), job)) {
+            return;
+        }
+        synchronized (finishedJobs) {
+            finishedJobs.addFirst(job);
+            while (finishedJobs.size() > FINISHED_JOBS_KEPT) {
+                finishedJobs.removeLast();
+            }
+        }
+    }
+
+    /**
+     * Closes registered resources, cancels queued jobs, lets running jobs finish for a bounded time and stops
+     * the pools.
+     */
+    static void shutdown() {
+        shuttingDown = true;
+
+        for (Closeable resource : shutdownResources) {
+            try {
+                resource.close();
+            } catch (IOException e) {
+                LOGGER.warn("Could not close {}", resource, e);
+            }
+        }
+
+        for (Job job : activeJobs.values()) {
+            if (job.cancelIfQueued()) {
+                finish(job);
+            }
+        }
+        IO_POOL.shutdown();
+
+        try {
+            if (!IO_POOL.awaitTermination(DRAIN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                LOGGER.warn("Background jobs did not finish in time, cancelling them");
+                for (Job job : activeJobs.values()) {
+                    job.requestCancel();
+                }
+                IO_POOL.shutdownNow();
+            }
+            // Running jobs may still hand compression and walks to the other pools, so they stop last
+            CPU_POOL.shutdown();
+            SCAN_POOL.shutdown();
+            CPU_POOL.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Creates a named daemon thread, not yet started, for a wait that lasts as long as some UI or watcher
+     * and so must not hold one of the bounded pool threads.
+     */
+    public static Thread newThread(String name, Runnable runnable) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        return thread;
+    }
+
+    private static ThreadPoolExecutor createPool(String name, int threads, LinkedBlockingQueue<Runnable> queue) {
+        AtomicInteger threadCounter = new AtomicInteger();
+        ThreadFactory factory = runnable -> newThread(name + "-" + threadCounter.incrementAndGet(), runnable);
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, queue, factory);
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    private static ForkJoinPool createForkJoinPool(String name, int threads) {
+        AtomicInteger threadCounter = new AtomicInteger();
+        ForkJoinPool.ForkJoinWorkerThreadFactory factory = pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName(name + "-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        };
+        return new ForkJoinPool(threads, factory, null, false);
+    }
+}
@@ -1,13 +1,47 @@
 package com.github.kdgaming0.packcore.utils;
 
+import com.github.kdgaming0.packcore.task.PackCoreTasks;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
 import static com.github.kdgaming0.packcore.PackCore.MOD_ID;
 
 public class CheckForUpdates {
     private static final Logger LOGGER = LogManager.getLogger(MOD_ID);
+    private static CompletableFuture<String[]> pendingCheck;
+    private static long checkStartedAt;
+
+    /**
+     * Starts the update check on a background thread, unless one is running or finished recently, and
+     * returns its result: the same array {@link #checkForUpdates()} returns. Never blocks, so it is safe to
+     * call from the render thread.
+     */
+    public static synchronized CompletableFuture<String[]> prefetch() {
+        long now = System.currentTimeMillis();
+        // A finished check is reused for as long as the Modrinth response counts as fresh
+        long recheckAfter = TimeUnit.MINUTES.toMillis(ModpackInfo.getUpdateCacheMinutes());
+        if (pendingCheck == null || (pendingCheck.isDone() && now - checkStartedAt > recheckAfter)) {
+            checkStartedAt = now;
+            try {
+                pendingCheck = CompletableFuture.supplyAsync(CheckForUpdates::checkForUpdates, PackCoreTasks.io());
+            } catch (RejectedExecutionException e) {
+                LOGGER.warn("Could not start the update check", e);
+                pendingCheck = CompletableFuture.completedFuture(new String[3]);
+            }
+        }
+        return pendingCheck;
+    }
 
+    /**
+     * Checks Modrinth for the latest version. Blocks on the network; use {@link #prefetch()} on the client.
+     *
+     * @return the current version, the latest version and its changelog, or nulls if the check is disabled
+     * or failed
+     */
     public static String[] checkForUpdates() {
         String[] versions = new String[3];
         if (ModpackInfo.shouldCheckForUpdates()) {
@@ -27,4 +61,4 @@ public class CheckForUpdates {
         }
         return versions;
     }
-}
\ No newline at end of file
+}
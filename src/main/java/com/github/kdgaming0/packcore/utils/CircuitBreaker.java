@@ -0,0 +1,110 @@
+package com.github.kdgaming0.packcore.utils;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Stops calling a remote service that keeps failing, so callers get an answer at once instead of waiting
+ * for timeouts.
+ * <p>
+ * After {@code failureThreshold} consecutive failures the breaker opens and refuses calls. Once the backoff
+ * has passed, one call is let through as a probe: if it succeeds the breaker closes, otherwise it opens again
+ * with twice the backoff, up to {@code maxBackoffMillis}. Each backoff is randomized between half and the
+ * full value, so many clients that lost the connection together do not all retry at the same moment.
+ */
+public final class CircuitBreaker {
+    public enum State {
+        /** Calls go through. */
+        CLOSED,
+        /** Calls are refused until the backoff has passed. */
+        OPEN,
+        /** One probe call is in progress; others are refused until it finishes. */
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private int timesOpened;
+    private long retryAt;
+
+    public CircuitBreaker(int failureThreshold, long baseBackoffMillis, long maxBackoffMillis) {
+        this.failureThreshold = failureThreshold;
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    /**
+     * Asks to make a call. A caller that gets true must report the outcome with {@link #recordSuccess()},
+     * {@link #recordFailure()} or {@link #recordSkipped()}.
+     *
+     * @return false if the breaker is open and the call should not be made
+     */
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.currentTimeMillis() >= retryAt) {
+                    state = State.HALF_OPEN;
+                    return true;
+                }
+                return false;
+            default:
+                return false;
+        }
+    }
+
+    public synchronized void recordSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        timesOpened = 0;
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            open();
+        }
+    }
+
+    /**
+     * Reports that an allowed call was answered without reaching the service, for example from a cache, so
+     * it tells nothing about the service. A probe that was let through is allowed again.
+     */
+    public synchronized void recordSkipped() {
+        if (state == State.HALF_OPEN) {
+            // The backoff has already passed, so the next call probes
+            state = State.OPEN;
+        }
+    }
+
+    private void open() {
+        state = State.OPEN;
+        long backoff = Math.min(maxBackoffMillis, baseBackoffMillis << Math.min(timesOpened, 20));
+        timesOpened++;
+        retryAt = System.currentTimeMillis() + backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+    }
+
+    public synchronized Status getStatus() {
+        return new Status(state, consecutiveFailures, state == State.CLOSED ? 0 : retryAt);
+    }
+
+    /**
+     * A snapshot of the breaker for display.
+     */
+    public static final class Status {
+        public final State state;
+        public final int consecutiveFailures;
+        /** When the next probe is allowed, or 0 while the breaker is closed. */
+        public final long retryAt;
+
+        Status(State state, int consecutiveFailures, long retryAt) {
+            this.state = state;
+            this.consecutiveFailures = consecutiveFailures;
+            this.retryAt = retryAt;
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.github.kdgaming0.packcore.utils;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.GZIPInputStream;
+
+import static com.github.kdgaming0.packcore.PackCore.MOD_ID;
+
+/**
+ * On-disk cache for GET requests to JSON APIs.
+ * <p>
+ * Every response is stored with its {@code ETag} and {@code Last-Modified} headers. A response younger than
+ * the freshness limit is served from disk without a request; an older one is revalidated with
+ * {@code If-None-Match} and {@code If-Modified-Since}, so an unchanged resource costs a {@code 304} with an
+ * empty body instead of the whole document. Responses are requested gzip-compressed.
+ * <p>
+ * A {@link BodyReader} can reduce a response to the part the caller needs while it is downloaded; only that
+ * part is stored, and the reader may stop before the end of the response.
+ * <p>
+ * Entries survive restarts, so the first request after starting the game is usually a revalidation too.
+ */
+public final class HttpCache {
+    private static final Logger LOGGER = LogManager.getLogger(MOD_ID);
+    private static final int CACHE_VERSION = 1;
+    private static final int CONNECT_TIMEOUT_MILLIS = 5000;
+    private static final int READ_TIMEOUT_MILLIS = 5000;
+    private static final Gson gson = new Gson();
+
+    private final File folder;
+    private final String userAgent;
+
+    /**
+     * @param folder Where the responses are stored; created on the first write
+     * @param userAgent Sent with every request
+     */
+    public HttpCache(File folder, String userAgent) {
+        this.folder = folder;
+        this.userAgent = userAgent;
+    }
+
+    /**
+     * Gets a URL, from the cache if the stored response is younger than {@code maxAgeMillis} and otherwise
+     * with a conditional request.
+     *
+     * @return the response; a status other than 200 is returned as is and not cached
+     * @throws IOException if the request fails. The stored response, if any, is still available through
+     *                     {@link #getStale(String)}
+     */
+    public Response get(String url, long maxAgeMillis) throws IOException {
+        return get(url, maxAgeMillis, HttpCache::readFully);
+    }
+
+    /**
+     * Like {@link #get(String, long)}, but stores and returns what {@code bodyReader} makes of a downloaded
+     * response instead of the whole body. Stored entries were produced by the same reader, so callers should
+     * use one reader per URL.
+     */
+    public Response get(String url, long maxAgeMillis, BodyReader bodyReader) throws IOException {
+        Entry cached = read(url);
+        long now = System.currentTimeMillis();
+        if (cached != null && now - cached.storedAt < maxAgeMillis) {
+            return new Response(200, cached.body, Source.CACHE, cached.storedAt);
+        }
+
+        HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            conn.setRequestMethod("GET");
+            conn.setRequestProperty("User-Agent", userAgent);
+            conn.setRequestProperty("Accept-Encoding", "gzip");
+            conn.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+            conn.setReadTimeout(READ_TIMEOUT_MILLIS);
+            if (cached != null) {
+                if (cached.etag != null) {
+                    conn.setRequestProperty("If-None-Match", cached.etag);
+                }
+                if (cached.lastModified != null) {
+                    conn.setRequestProperty("If-Modified-Since", cached.lastModified);
+                }
+            }
+
+            int status = conn.getResponseCode();
+            if (status == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+                // Still valid; a new ETag may come with the 304
+                cached.storedAt = now;
+                if (conn.getHeaderField("ETag") != null) {
+                    cached.etag = conn.getHeaderField("ETag");
+                }
+                write(url, cached);
+                return new Response(200, cached.body, Source.REVALIDATED, now);
+            }
+            if (status != HttpURLConnection.HTTP_OK) {
+                return new Response(status, null, Source.NETWORK, now);
+            }
+
+            Entry entry = new Entry();
+            entry.version = CACHE_VERSION;
+            entry.url = url;
+            entry.etag = conn.getHeaderField("ETag");
+            entry.lastModified = conn.getHeaderField("Last-Modified");
+            entry.storedAt = now;
+            entry.body = readBody(conn, bodyReader);
+            write(url, entry);
+            return new Response(200, entry.body, Source.NETWORK, now);
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    /**
+     * The stored response for a URL regardless of its age, for use when the network is unavailable.
+     *
+     * @return the response, or null if nothing is stored
+     */
+    public Response getStale(String url) {
+        Entry cached = read(url);
+        return cached == null ? null : new Response(200, cached.body, Source.CACHE, cached.storedAt);
+    }
+
+    private static String readBody(HttpURLConnection conn, BodyReader bodyReader) throws IOException {
+        // Closing early abandons the rest of the response; disconnect() then drops the connection
+        try (InputStream raw = conn.getInputStream();
+             InputStream in = "gzip".equalsIgnoreCase(conn.getContentEncoding()) ? new GZIPInputStream(raw) : raw;
+             Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            String body = bodyReader.read(reader);
+            if (body == null) {
+                throw new IOException("No body read from " + conn.getURL());
+            }
+            return body;
+        }
+    }
+
+    private static String readFully(Reader reader) throws IOException {
+        StringBuilder body = new StringBuilder();
+        char[] buffer = new char[8192];
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            body.append(buffer, 0, read);
+        }
+        return body.toString();
+    }
+
+    private Entry read(String url) {
+        Path file = fileFor(url);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            Entry entry = gson.fromJson(reader, Entry.class);
+            // A hash collision or an old format is treated as a miss
+            if (entry == null || entry.version != CACHE_VERSION || !url.equals(entry.url) || entry.body == null) {
+                return null;
+            }
+            return entry;
+        } catch (IOException | JsonParseException e) {
+            LOGGER.warn("Ignoring unreadable HTTP cache entry {}", file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Replaces the stored response. The cache is only a shortcut, so a failed write is logged and otherwise
+     * ignored.
+     */
+    private void write(String url, Entry entry) {
+        Path file = fileFor(url);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(folder.toPath());
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                gson.toJson(entry, writer);
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Could not write HTTP cache entry {}", file, e);
+        }
+    }
+
+    private Path fileFor(String url) {
+        return new File(folder, sha1(url) + ".json").toPath();
+    }
+
+    private static String sha1(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(text.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not available", e);
+        }
+    }
+
+    /**
+     * Turns a downloaded response into the text that is stored and returned.
+     */
+    public interface BodyReader {
+        /**
+         * @param body The decoded response; it does not have to be read to the end
+         * @return the text to store, never null
+         */
+        String read(Reader body) throws IOException;
+    }
+
+    /**
+     * Where a response came from.
+     */
+    public enum Source {
+        /** Served from disk without a request. */
+        CACHE,
+        /** Confirmed unchanged by a 304. */
+        REVALIDATED,
+        /** Downloaded. */
+        NETWORK
+    }
+
+    public static final class Response {
+        public final int status;
+        /** The body for status 200, otherwise null. */
+        public final String body;
+        public final Source source;
+        /** When the body was last downloaded or confirmed unchanged. */
+        public final long validatedAt;
+
+        Response(int status, String body, Source source, long validatedAt) {
+            this.status = status;
+            this.body = body;
+            this.source = source;
+            this.validatedAt = validatedAt;
+        }
+    }
+
+    /**
+     * On-disk entry, serialized with Gson.
+     */
+    private static final class Entry {
+        int version;
+        String url;
+        String etag;
+        String lastModified;
+        long storedAt;
+        String body;
+    }
+}
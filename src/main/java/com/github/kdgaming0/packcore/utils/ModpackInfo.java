@@ -21,6 +21,7 @@ public class ModpackInfo {
     private static JsonObject modpackData;
     private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
     private static final DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final int DEFAULT_UPDATE_CACHE_MINUTES = 15;
 
     public static void loadModpackInfo() {
         File modpackFile = new File(MODPACK_INFO_PATH);
@@ -57,6 +58,7 @@ public class ModpackInfo {
         update.addProperty("modrinth_project_id", "");
         update.addProperty("check_for_updates", true);
         update.addProperty("update_channel", "release");
+        update.addProperty("cache_max_age_minutes", DEFAULT_UPDATE_CACHE_MINUTES);
 
         // Social section
         JsonObject social = new JsonObject();
@@ -98,6 +100,39 @@ public class ModpackInfo {
         return modpackData.getAsJsonObject("update").get("check_for_updates").getAsBoolean();
     }
 
+    public static String getMinecraftVersion() {
+        if (modpackData == null) loadModpackInfo();
+        JsonObject modpack = modpackData.getAsJsonObject("modpack");
+        return modpack != null && modpack.has("minecraft_version") ? modpack.get("minecraft_version").getAsString() : "1.8.9";
+    }
+
+    /**
+     * The least stable Modrinth version type to update to: "release", "beta" or "alpha".
+     */
+    public static String getUpdateChannel() {
+        if (modpackData == null) loadModpackInfo();
+        JsonObject update = modpackData.getAsJsonObject("update");
+        return update != null && update.has("update_channel") ? update.get("update_channel").getAsString() : "release";
+    }
+
+    /**
+     * How long a Modrinth response is used before it is revalidated. Older files without the setting get
+     * the default.
+     */
+    public static int getUpdateCacheMinutes() {
+        if (modpackData == null) loadModpackInfo();
+        JsonObject update = modpackData.getAsJsonObject("update");
+        if (update == null || !update.has("cache_max_age_minutes")) {
+            return DEFAULT_UPDATE_CACHE_MINUTES;
+        }
+        try {
+            return Math.max(0, update.get("cache_max_age_minutes").getAsInt());
+        } catch (RuntimeException e) {
+            LOGGER.warn("Invalid cache_max_age_minutes in modpack info, using {}", DEFAULT_UPDATE_CACHE_MINUTES);
+            return DEFAULT_UPDATE_CACHE_MINUTES;
+        }
+    }
+
     public static String getOptifineGuide() {
         if (modpackData == null) loadModpackInfo();
         return modpackData.getAsJsonObject("optifine").get("Guide").getAsString();
@@ -1,31 +1,53 @@
 package com.github.kdgaming0.packcore.utils;
 
+import com.github.kdgaming0.packcore.task.PackCoreTasks;
 import com.google.gson.Gson;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonObject;
+import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import net.minecraft.client.Minecraft;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
 import static com.github.kdgaming0.packcore.PackCore.MOD_ID;
 
 public class ModrinthAPICaller {
     private static final Logger LOGGER = LogManager.getLogger(MOD_ID);
-    private static final String MODRINTH_API_BASE = "https://api.modrinth.com/v2/project/%s/version";
+    // Modrinth filters by loader and game version; the list is newest first
+    private static final String MODRINTH_API_BASE = "https://api.modrinth.com/v2/project/%s/version?loaders=%s&game_versions=%s";
+    private static final String LOADER = "forge";
     private static final Gson gson = new Gson();
 
-    // Cache duration in milliseconds (15 minutes)
-    private static final long CACHE_DURATION = TimeUnit.MINUTES.toMillis(15);
+    private static final String CACHE_FOLDER = "Skyblock Enhanced/.http-cache";
+    // Inside the instance like the other PackCore stores, whatever working directory the launcher uses
+    private static final HttpCache cache = new HttpCache(new File(Minecraft.getMinecraft().mcDataDir, CACHE_FOLDER),
+            "ModpackUpdateChecker/1.0");
+    // Opens after 3 failed requests in a row; retries after 30 s, doubling up to 30 min
+    private static final CircuitBreaker breaker = new CircuitBreaker(3, TimeUnit.SECONDS.toMillis(30),
+            TimeUnit.MINUTES.toMillis(30));
+    /** How long past its freshness limit a result is still returned while a refresh runs in the background. */
+    private static final long MAX_STALE_MILLIS = TimeUnit.HOURS.toMillis(24);
 
-    private static String cachedVersion = null;
-    private static String cachedChangelog = null;
-    private static long lastCacheTime = 0;
+    // The last successful lookup, replaced as a whole so readers never see a half-updated result
+    private static volatile LatestVersion latest;
+    // Lookups in progress by project ID; guarded by the class lock
+    private static final Map<String, CompletableFuture<VersionResponse>> refreshes = new HashMap<>();
 
     public static class VersionResponse {
         public final String version;
@@ -47,6 +69,13 @@ public class ModrinthAPICaller {
         }
     }
 
+    /**
+     * The latest version of a project on the configured update channel.
+     * <p>
+     * A fresh result is returned right away. A result past its freshness limit is also returned right away
+     * while one background refresh updates it. Only without a usable result does the caller wait, and
+     * concurrent callers then share a single request.
+     */
     public static VersionResponse getLatestVersion(String projectId) {
         // Check if project ID is empty or null
         if (projectId == null || projectId.trim().isEmpty()) {
@@ -55,47 +84,126 @@ public class ModrinthAPICaller {
                     "Please report this issue at the modpack's issue tracker. Link at the top of the page.");
         }
 
-        // Check if cache is still valid
-        if (cachedVersion != null && System.currentTimeMillis() - lastCacheTime < CACHE_DURATION) {
-            return new VersionResponse(cachedVersion, cachedChangelog);
+        LatestVersion current = getKnownVersion(projectId);
+        if (current != null) {
+            long age = System.currentTimeMillis() - current.validatedAt;
+            long maxAge = TimeUnit.MINUTES.toMillis(ModpackInfo.getUpdateCacheMinutes());
+            if (age < maxAge) {
+                return current.response;
+            }
+            if (age < maxAge + MAX_STALE_MILLIS) {
+                refreshInBackground(projectId);
+                return current.response;
+            }
+        }
+        return awaitRefresh(projectId);
+    }
+
+    /**
+     * The last successful lookup, falling back to the one stored on disk by an earlier session.
+     */
+    private static LatestVersion getKnownVersion(String projectId) {
+        LatestVersion current = latest;
+        if (current != null && current.projectId.equals(projectId)) {
+            return current;
+        }
+        HttpCache.Response stored = cache.getStale(getVersionsUrl(projectId));
+        if (stored == null) {
+            return null;
+        }
+        VersionResponse response = parseLatestVersion(stored.body);
+        if (!response.success) {
+            return null;
+        }
+        current = new LatestVersion(projectId, response, stored.validatedAt);
+        latest = current;
+        return current;
+    }
+
+    private static void refreshInBackground(String projectId) {
+        CompletableFuture<VersionResponse> refresh = new CompletableFuture<>();
+        if (claimRefresh(projectId, refresh) != null) {
+            return;
+        }
+        try {
+            PackCoreTasks.io().execute(() -> runRefresh(projectId, refresh));
+        } catch (RejectedExecutionException e) {
+            // Shutting down or overloaded; the stale result stays until the next lookup
+            finishRefresh(projectId, refresh, new VersionResponse("Update check could not be started."));
+        }
+    }
+
+    private static VersionResponse awaitRefresh(String projectId) {
+        CompletableFuture<VersionResponse> refresh = new CompletableFuture<>();
+        CompletableFuture<VersionResponse> running = claimRefresh(projectId, refresh);
+        if (running != null) {
+            return running.join();
+        }
+        // The first caller runs the request itself, so waiting never needs a free pool thread
+        return runRefresh(projectId, refresh);
+    }
+
+    /**
+     * Registers a refresh for a project unless one is already running.
+     *
+     * @return the running refresh, or null if {@code refresh} was registered and the caller must run it
+     */
+    private static synchronized CompletableFuture<VersionResponse> claimRefresh(String projectId,
+                                                                                CompletableFuture<VersionResponse> refresh) {
+        CompletableFuture<VersionResponse> running = refreshes.get(projectId);
+        if (running != null) {
+            return running;
         }
+        refreshes.put(projectId, refresh);
+        return null;
+    }
 
-        // Cache expired or doesn't exist, make new API call
-        HttpURLConnection conn = null;
+    private static VersionResponse runRefresh(String projectId, CompletableFuture<VersionResponse> refresh) {
+        VersionResponse response;
         try {
-            URL url = new URL(String.format(MODRINTH_API_BASE, projectId));
-            conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-            conn.setRequestProperty("User-Agent", "ModpackUpdateChecker/1.0");
-            conn.setConnectTimeout(5000); // 5 seconds timeout for connection
-            conn.setReadTimeout(5000);    // 5 seconds timeout for reading
-
-            int responseCode = conn.getResponseCode();
-
-            if (conn.getResponseCode() == 200) {
-                try (BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream()))) {
-                    StringBuilder response = new StringBuilder();
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        response.append(line);
-                    }
-
-                    // Parse response
-                    JsonArray versions = gson.fromJson(response.toString(), JsonArray.class);
-                    if (versions.size() > 0) {
-                        JsonObject latestVersion = versions.get(0).getAsJsonObject();
-
-                        // Update cache
-                        cachedVersion = latestVersion.get("version_number").getAsString();
-                        cachedChangelog = latestVersion.has("changelog") ?
-                                latestVersion.get("changelog").getAsString() : "No changelog available";
-                        lastCacheTime = System.currentTimeMillis();
-
-                        return new VersionResponse(cachedVersion, cachedChangelog);
-                    } else {
-                        return new VersionResponse("No versions found for this project. The API call failed to return any data.");
-                    }
+            response = fetchLatestVersion(projectId);
+        } catch (RuntimeException e) {
+            LOGGER.error("Update check failed", e);
+            response = new VersionResponse("Update check failed: " + e.getMessage());
+        }
+        finishRefresh(projectId, refresh, response);
+        return response;
+    }
+
+    private static void finishRefresh(String projectId, CompletableFuture<VersionResponse> refresh, VersionResponse response) {
+        synchronized (ModrinthAPICaller.class) {
+            refreshes.remove(projectId, refresh);
+        }
+        refresh.complete(response);
+    }
+
+    private static VersionResponse fetchLatestVersion(String projectId) {
+        String url = getVersionsUrl(projectId);
+        if (!breaker.tryAcquire()) {
+            // Offline or Modrinth is down; answer now instead of waiting for the timeouts again
+            LOGGER.debug("Skipping Modrinth request while the connection is failing");
+            return handleError(url, "Modrinth could not be reached. The update check will try again later.");
+        }
+
+        // Only answers that came over the network tell whether Modrinth can be reached
+        boolean contacted = true;
+        boolean reachable = false;
+        try {
+            // Served from disk while fresh, otherwise revalidated, so an unchanged list costs a 304
+            HttpCache.Response response = cache.get(url, TimeUnit.MINUTES.toMillis(ModpackInfo.getUpdateCacheMinutes()),
+                    ModrinthAPICaller::readLatestVersions);
+            contacted = response.source != HttpCache.Source.CACHE;
+            int responseCode = response.status;
+            // Server errors and rate limiting back off like a lost connection; other answers mean Modrinth is up
+            reachable = responseCode < 500 && responseCode != 429;
+
+            if (responseCode == 200) {
+                LOGGER.debug("Modrinth versions for {} from {}", projectId, response.source);
+                VersionResponse result = parseLatestVersion(response.body);
+                if (result.success) {
+                    latest = new LatestVersion(projectId, result, response.validatedAt);
                 }
+                return result;
             } else if (responseCode == 404) {
                 LOGGER.error("Project not found on Modrinth. Check if the Project ID is correct: " + projectId);
                 return new VersionResponse("Project not found on Modrinth. Please verify the Project ID.");
@@ -105,23 +213,163 @@ public class ModrinthAPICaller {
             }
         } catch (java.net.SocketTimeoutException e) {
             LOGGER.error("Connection to Modrinth API timed out", e);
-            return handleError("Connection to Modrinth timed out. Please check your internet connection.");
+            return handleError(url, "Connection to Modrinth timed out. Please check your internet connection.");
         } catch (IOException e) {
             LOGGER.error("Error fetching version data from Modrinth", e);
-            return handleError("Failed to connect to Modrinth. Please check your internet connection.");
+            return handleError(url, "Failed to connect to Modrinth. Please check your internet connection.");
         } finally {
-            if (conn != null) {
-                conn.disconnect();
+            if (!contacted) {
+                breaker.recordSkipped();
+            } else if (reachable) {
+                breaker.recordSuccess();
+            } else {
+                breaker.recordFailure();
             }
         }
     }
 
-    private static VersionResponse handleError(String errorMessage) {
+    /**
+     * Whether Modrinth is currently being reached, for display.
+     */
+    public static CircuitBreaker.Status getConnectionStatus() {
+        return breaker.getStatus();
+    }
+
+    private static String getVersionsUrl(String projectId) {
+        try {
+            return String.format(MODRINTH_API_BASE, URLEncoder.encode(projectId.trim(), "UTF-8"),
+                    URLEncoder.encode("[\"" + LOADER + "\"]", "UTF-8"),
+                    URLEncoder.encode("[\"" + ModpackInfo.getMinecraftVersion() + "\"]", "UTF-8"));
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException("UTF-8 is not supported", e);
+        }
+    }
+
+    /**
+     * Streams the versions list and keeps the newest version of each type, stopping at the first release.
+     * That is all any update channel needs, so the rest of the list is never downloaded or parsed.
+     *
+     * @return the kept versions as a JSON array, newest first
+     */
+    private static String readLatestVersions(Reader body) throws IOException {
+        List<Version> latest = new ArrayList<>();
+        Set<String> seenTypes = new HashSet<>();
+        JsonReader reader = new JsonReader(body);
+        reader.beginArray();
+        while (reader.hasNext()) {
+            Version version = readVersion(reader);
+            if (version.versionNumber == null || !seenTypes.add(version.getType())) {
+                continue;
+            }
+            latest.add(version);
+            if ("release".equals(version.getType())) {
+                break;
+            }
+        }
+        return gson.toJson(latest);
+    }
+
+    private static Version readVersion(JsonReader reader) throws IOException {
+        Version version = new Version();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (name.equals("version_number")) {
+                version.versionNumber = nextStringOrNull(reader);
+            } else if (name.equals("version_type")) {
+                version.versionType = nextStringOrNull(reader);
+            } else if (name.equals("changelog")) {
+                version.changelog = nextStringOrNull(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return version;
+    }
+
+    private static String nextStringOrNull(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+
+    /**
+     * Picks the newest version on the configured update channel from the stored versions.
+     */
+    private static VersionResponse parseLatestVersion(String body) {
+        String channel = ModpackInfo.getUpdateChannel().toLowerCase();
+        try {
+            JsonReader reader = new JsonReader(new StringReader(body));
+            reader.beginArray();
+            while (reader.hasNext()) {
+                Version version = readVersion(reader);
+                if (version.versionNumber != null && isOnChannel(version.getType(), channel)) {
+                    String changelog = version.changelog != null ? version.changelog : "No changelog available";
+                    return new VersionResponse(version.versionNumber, changelog);
+                }
+            }
+            return new VersionResponse("No versions found for this project. The API call failed to return any data.");
+        } catch (IOException | IllegalStateException e) {
+            LOGGER.error("Unexpected response from Modrinth", e);
+            return new VersionResponse("Modrinth returned data in an unexpected format.");
+        }
+    }
+
+    private static boolean isOnChannel(String versionType, String channel) {
+        switch (channel) {
+            case "alpha":
+                return true;
+            case "beta":
+                return !"alpha".equals(versionType);
+            default:
+                return "release".equals(versionType);
+        }
+    }
+
+    private static VersionResponse handleError(String url, String errorMessage) {
         // If we have cached data, return it with a warning
-        if (cachedVersion != null) {
-            LOGGER.warn("Using cached version data due to API error");
-            return new VersionResponse(cachedVersion, cachedChangelog + "\n\nNote: Using cached data due to connection issues.");
+        HttpCache.Response stale = cache.getStale(url);
+        if (stale != null) {
+            VersionResponse cached = parseLatestVersion(stale.body);
+            if (cached.success) {
+                LOGGER.warn("Using cached version data due to API error");
+                return new VersionResponse(cached.version, cached.changelog + "\n\nNote: Using cached data due to connection issues.");
+            }
         }
         return new VersionResponse(errorMessage);
     }
-}
\ No newline at end of file
+
+    /**
+     * A successful lookup and when its data was last confirmed with Modrinth.
+     */
+    private static final class LatestVersion {
+        final String projectId;
+        final VersionResponse response;
+        final long validatedAt;
+
+        LatestVersion(String projectId, VersionResponse response, long validatedAt) {
+            this.projectId = projectId;
+            this.response = response;
+            this.validatedAt = validatedAt;
+        }
+    }
+
+    /**
+     * The fields of a Modrinth version the update check uses; also the stored form.
+     */
+    private static final class Version {
+        @SerializedName("version_number")
+        String versionNumber;
+        @SerializedName("version_type")
+        String versionType;
+        String changelog;
+
+        String getType() {
+            // Versions without a type are treated as releases
+            return versionType != null ? versionType : "release";
+        }
+    }
+}
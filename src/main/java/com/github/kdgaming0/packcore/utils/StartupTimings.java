@@ -0,0 +1,227 @@
+package com.github.kdgaming0.packcore.utils;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static com.github.kdgaming0.packcore.PackCore.MOD_ID;
+
+/**
+ * Records how long each phase of PackCore's part of the game launch takes, from mixin discovery through
+ * the pre-launch config extraction to mod initialization.
+ * <p>
+ * Phases are timed with {@link System#nanoTime()}:
+ * <pre>
+ * try (StartupTimings.Span ignored = StartupTimings.start("init.modConfig")) {
+ *     ModConfig.loadConfig();
+ * }
+ * </pre>
+ * Once initialization is done, {@link #writeReport(File)} writes the phases to a JSON file in
+ * {@code Skyblock Enhanced/startup-timings}, keeping the last {@value #MAX_REPORTS} launches, and logs a
+ * one line summary.
+ */
+public final class StartupTimings {
+    private static final Logger LOGGER = LogManager.getLogger(MOD_ID);
+    private static final String REPORT_FOLDER = "Skyblock Enhanced/startup-timings";
+    private static final int REPORT_VERSION = 1;
+    private static final int MAX_REPORTS = 20;
+    private static final int SUMMARY_PHASES = 3;
+    private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    private static final DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final DateTimeFormatter fileDateFormatter = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private static final List<Phase> phases = new ArrayList<>();
+    private static long firstStartNanos;
+    private static boolean reportWritten;
+
+    private StartupTimings() {
+    }
+
+    /**
+     * Starts timing a phase; the phase is recorded when the span is closed.
+     */
+    public static Span start(String phase) {
+        return new Span(phase, System.nanoTime());
+    }
+
+    private static void record(String name, long startNanos, long endNanos) {
+        record(name, Thread.currentThread().getName(), startNanos, endNanos);
+    }
+
+    /**
+     * Records a phase that was timed elsewhere with {@link System#nanoTime()}, for code that runs before this
+     * class may be loaded, such as the mixin plugin.
+     */
+    public static synchronized void record(String name, String thread, long startNanos, long endNanos) {
+        if (phases.isEmpty() || startNanos < firstStartNanos) {
+            firstStartNanos = startNanos;
+        }
+        phases.add(new Phase(name, thread, startNanos, endNanos));
+    }
+
+    /**
+     * Writes the recorded phases to a new report and removes the oldest reports. Only the first call per
+     * launch writes anything.
+     *
+     * @param minecraftRoot The instance folder
+     */
+    public static void writeReport(File minecraftRoot) {
+        Report report;
+        synchronized (StartupTimings.class) {
+            if (reportWritten || phases.isEmpty()) {
+                return;
+            }
+            reportWritten = true;
+            report = createReport();
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        report.created = now.format(dateFormatter);
+        File folder = new File(minecraftRoot, REPORT_FOLDER);
+        File reportFile = new File(folder, "startup-" + now.format(fileDateFormatter) + ".json");
+
+        folder.mkdirs();
+        try (FileWriter writer = new FileWriter(reportFile)) {
+            gson.toJson(report, writer);
+        } catch (IOException e) {
+            LOGGER.error("Failed to write startup timing report", e);
+            return;
+        }
+        deleteOldReports(folder);
+
+        LOGGER.info("PackCore startup: {} ({})", summarize(report), reportFile.getName());
+    }
+
+    private static Report createReport() {
+        Report report = new Report();
+        report.version = REPORT_VERSION;
+        report.modpackVersion = getModpackVersion();
+        report.jvmUptimeMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+        report.phases = new ArrayList<>();
+
+        long totalNanos = 0;
+        for (Phase phase : phases) {
+            PhaseRecord record = new PhaseRecord();
+            record.name = phase.name;
+            record.thread = phase.thread;
+            record.startMillis = toMillis(phase.startNanos - firstStartNanos);
+            record.durationMillis = toMillis(phase.endNanos - phase.startNanos);
+            report.phases.add(record);
+            totalNanos += phase.endNanos - phase.startNanos;
+        }
+        report.totalMillis = toMillis(totalNanos);
+        return report;
+    }
+
+    /**
+     * Something like "412.3 ms in 9 phases, slowest: preLaunch.scan 120.5 ms, init.modConfig 4.1 ms".
+     */
+    private static String summarize(Report report) {
+        List<PhaseRecord> slowest = new ArrayList<>(report.phases);
+        slowest.sort(Comparator.comparingDouble((PhaseRecord record) -> record.durationMillis).reversed());
+
+        StringBuilder summary = new StringBuilder()
+                .append(report.totalMillis).append(" ms in ").append(report.phases.size()).append(" phases, slowest: ");
+        for (int i = 0; i < Math.min(SUMMARY_PHASES, slowest.size()); i++) {
+            if (i > 0) {
+                summary.append(", ");
+            }
+            summary.append(slowest.get(i).name).append(' ').append(slowest.get(i).durationMillis).append(" ms");
+        }
+        return summary.toString();
+    }
+
+    private static void deleteOldReports(File folder) {
+        File[] reports = folder.listFiles((dir, name) -> name.startsWith("startup-") && name.endsWith(".json"));
+        if (reports == null || reports.length <= MAX_REPORTS) {
+            return;
+        }
+        // The timestamp in the name sorts chronologically
+        Arrays.sort(reports, Comparator.comparing(File::getName));
+        for (int i = 0; i < reports.length - MAX_REPORTS; i++) {
+            if (!reports[i].delete()) {
+                LOGGER.warn("Could not delete old startup timing report {}", reports[i].getName());
+            }
+        }
+    }
+
+    private static String getModpackVersion() {
+        try {
+            return ModpackInfo.getCurrentVersion();
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static double toMillis(long nanos) {
+        // One decimal is plenty and keeps the report readable
+        return Math.round(nanos / 100_000.0) / 10.0;
+    }
+
+    /**
+     * A running phase. Closing it records the phase; closing it again has no effect.
+     */
+    public static final class Span implements AutoCloseable {
+        private final String phase;
+        private final long startNanos;
+        private boolean closed;
+
+        private Span(String phase, long startNanos) {
+            this.phase = phase;
+            this.startNanos = startNanos;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                record(phase, startNanos, System.nanoTime());
+            }
+        }
+    }
+
+    private static final class Phase {
+        final String name;
+        final String thread;
+        final long startNanos;
+        final long endNanos;
+
+        Phase(String name, String thread, long startNanos, long endNanos) {
+            this.name = name;
+            this.thread = thread;
+            this.startNanos = startNanos;
+            this.endNanos = endNanos;
+        }
+    }
+
+    /**
+     * On-disk report, serialized with Gson.
+     */
+    private static final class Report {
+        int version;
+        String created;
+        String modpackVersion;
+        double totalMillis;
+        long jvmUptimeMillis;
+        List<PhaseRecord> phases;
+    }
+
+    private static final class PhaseRecord {
+        String name;
+        String thread;
+        double startMillis;
+        double durationMillis;
+    }
+}